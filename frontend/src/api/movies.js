@@ -23,6 +23,26 @@ export const moviesApi = {
     return data;
   },
 
+  /**
+   * Title suggestions for a partially typed query
+   */
+  suggest: async (prefix, limit = 8) => {
+    const { data } = await api.get(API_PATHS.MOVIES.SUGGEST, {
+      params: { prefix, limit },
+    });
+    return data;
+  },
+
+  /**
+   * One page of already-seen movies, sorted and filtered server-side
+   */
+  discover: async (sort, page = 1, filters = {}) => {
+    const { data } = await api.get(API_PATHS.MOVIES.DISCOVER, {
+      params: { sort, page, ...filters },
+    });
+    return data;
+  },
+
   /**
    * Retrieve the details for a single movie
    */
@@ -30,4 +50,14 @@ export const moviesApi = {
     const { data } = await api.get(API_PATHS.MOVIES.DETAIL(id));
     return data;
   },
+
+  /**
+   * Retrieve the details for several movies in one request, in the given order
+   */
+  getBatch: async (ids) => {
+    const { data } = await api.get(API_PATHS.MOVIES.BATCH, {
+      params: { ids: ids.join(",") },
+    });
+    return data;
+  },
 };
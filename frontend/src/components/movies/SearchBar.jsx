@@ -1,3 +1,4 @@
+import { useState } from "react";
 import { motion, AnimatePresence } from "framer-motion";
 
 export default function SearchBar({
@@ -8,8 +9,13 @@ export default function SearchBar({
   onSortToggle,
   isSortExpanded,
   currentSort,
+  suggestions = [],
+  onSuggestionSelect,
   placeholder = "Search for movies...",
 }) {
+  const [isFocused, setIsFocused] = useState(false);
+  const showSuggestions = isFocused && suggestions.length > 0;
+
   return (
     <div className="mb-8">
       <form onSubmit={onSubmit}>
@@ -37,11 +43,46 @@ export default function SearchBar({
             type="text"
             value={value}
             onChange={(e) => onChange(e.target.value)}
+            onFocus={() => setIsFocused(true)}
+            onBlur={() => setIsFocused(false)}
             placeholder={placeholder}
             className="flex-1 pl-12 pr-12 py-3 bg-[#211b27] border border-[#473b54] rounded-lg text-white placeholder:text-[#ab9cba] focus:outline-none focus:border-[#8d25f4] transition-colors"
             autoComplete="off"
           />
 
+          {/* Title Suggestions */}
+          <AnimatePresence>
+            {showSuggestions && (
+              <motion.ul
+                initial={{ opacity: 0, y: -4 }}
+                animate={{ opacity: 1, y: 0 }}
+                exit={{ opacity: 0, y: -4 }}
+                className="absolute left-0 right-[200px] top-full mt-1 bg-[#211b27] border border-[#473b54] rounded-lg overflow-hidden z-20"
+              >
+                {suggestions.map((suggestion) => (
+                  <li key={suggestion.id}>
+                    <button
+                      type="button"
+                      // onMouseDown fires before the input loses focus and hides the list
+                      onMouseDown={(e) => {
+                        e.preventDefault();
+                        onSuggestionSelect?.(suggestion);
+                      }}
+                      className="w-full text-left px-4 py-2 text-white hover:bg-[#302839] transition-colors flex justify-between gap-4"
+                    >
+                      <span className="truncate">{suggestion.title}</span>
+                      {suggestion.release_date && (
+                        <span className="text-[#ab9cba] text-sm shrink-0">
+                          {suggestion.release_date.slice(0, 4)}
+                        </span>
+                      )}
+                    </button>
+                  </li>
+                ))}
+              </motion.ul>
+            )}
+          </AnimatePresence>
+
           {/* Clear Button */}
           <AnimatePresence>
             {value && (
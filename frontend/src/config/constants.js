@@ -34,6 +34,10 @@ export const API_PATHS = {
     POPULAR: "/api/movies/popular",
     SEARCH: "/api/movies/search",
     DETAIL: (id) => `/api/movies/${id}`,
+    BATCH: "/api/movies/batch", // GET ?ids=1,2,3
+    SUGGEST: "/api/movies/suggest", // GET ?prefix=matr&limit=8
+    DISCOVER: "/api/movies/discover", // GET ?sort=vote_average.desc&minVotes=50&page=1
+    IMAGE: (size, path) => `/api/movies/images/${size}${path}`, // Poster/backdrop proxy, path starts with /
   },
 
   // Ratings
@@ -28,6 +28,9 @@ export const queryKeys = {
     popular: (page = 1) => ["movies", "popular", page],
     search: (query, page = 1) => ["movies", "search", query, page],
     detail: (id) => ["movies", "detail", id],
+    batch: (ids) => ["movies", "batch", ids],
+    suggest: (prefix) => ["movies", "suggest", prefix],
+    discover: (sort, page = 1) => ["movies", "discover", sort, page],
   },
 
   // Ratings
@@ -1,12 +1,13 @@
-import { useQuery } from "@tanstack/react-query";
+import { useQuery, useQueryClient } from "@tanstack/react-query";
 import { moviesApi } from "../api";
 import { queryKeys } from "../config/queryClient";
 
 // ==================== Popular movies ====================
-export const usePopularMovies = (page = 1) => {
+export const usePopularMovies = (page = 1, enabled = true) => {
   return useQuery({
     queryKey: queryKeys.movies.popular(page),
     queryFn: () => moviesApi.getPopular(page),
+    enabled,
     keepPreviousData: true, // Retain prior page data while fetching
   });
 };
@@ -21,6 +22,31 @@ export const useSearchMovies = (query, page = 1) => {
   });
 };
 
+// ==================== Sorted browsing ====================
+export const useDiscoverMovies = (sort, page = 1, enabled = true) => {
+  return useQuery({
+    queryKey: queryKeys.movies.discover(sort, page),
+    queryFn: () =>
+      moviesApi.discover(sort, page, {
+        // Keep films rated by a handful of voters out of the rating sorts
+        minVotes: sort.startsWith("vote_average") ? 50 : undefined,
+      }),
+    enabled,
+    keepPreviousData: true,
+  });
+};
+
+// ==================== Title suggestions ====================
+export const useMovieSuggestions = (prefix) => {
+  return useQuery({
+    queryKey: queryKeys.movies.suggest(prefix),
+    queryFn: () => moviesApi.suggest(prefix),
+    enabled: prefix.trim().length > 0,
+    staleTime: 60 * 1000, // Suggestions are cheap and change slowly
+    keepPreviousData: true, // Avoid flicker between keystrokes
+  });
+};
+
 // ==================== Movie details ====================
 export const useMovieDetails = (id) => {
   return useQuery({
@@ -29,3 +55,22 @@ export const useMovieDetails = (id) => {
     enabled: !!id, // Only fetch when an ID is provided
   });
 };
+
+// ==================== Batch movie details ====================
+export const useMoviesBatch = (ids = []) => {
+  const queryClient = useQueryClient();
+
+  return useQuery({
+    queryKey: queryKeys.movies.batch(ids),
+    queryFn: () => moviesApi.getBatch(ids),
+    enabled: ids.length > 0,
+    onSuccess: (movies) => {
+      // Seed the per-movie cache so detail pages opened from the list load instantly
+      movies.forEach((movie) => {
+        if (movie?.id) {
+          queryClient.setQueryData(queryKeys.movies.detail(String(movie.id)), movie);
+        }
+      });
+    },
+  });
+};
@@ -1,6 +1,11 @@
 import { useState, useEffect } from "react";
 import { useNavigate, useSearchParams } from "react-router-dom";
-import { usePopularMovies, useSearchMovies } from "../hooks/useMovies";
+import {
+  usePopularMovies,
+  useDiscoverMovies,
+  useSearchMovies,
+  useMovieSuggestions,
+} from "../hooks/useMovies";
 import { useDebounce } from "../hooks/useDebounce";
 
 // Common components
@@ -39,9 +44,16 @@ export default function Movies() {
   // Debounce search query to reduce API calls
   const debouncedSearchQuery = useDebounce(searchQuery, 500);
 
+  // Suggestions are served from movie-service memory, so they can follow typing closely
+  const debouncedSuggestPrefix = useDebounce(searchQuery, 120);
+  const { data: suggestions = [] } = useMovieSuggestions(debouncedSuggestPrefix);
+
   // Determine if we're in search mode
   const isSearchMode = debouncedSearchQuery.length > 2;
 
+  // Browsing in any order other than TMDB's popular list is sorted server-side, across all pages
+  const isDiscoverMode = !isSearchMode && selectedSort !== "popularity.desc";
+
   // Fetch popular movies
   const {
     data: popularMovies,
@@ -49,7 +61,16 @@ export default function Movies() {
     isError: errorPopular,
     error: popularError,
     refetch: refetchPopular,
-  } = usePopularMovies(page);
+  } = usePopularMovies(page, !isDiscoverMode);
+
+  // Fetch sorted movies
+  const {
+    data: discoverMovies,
+    isLoading: loadingDiscover,
+    isError: errorDiscover,
+    error: discoverError,
+    refetch: refetchDiscover,
+  } = useDiscoverMovies(selectedSort, page, isDiscoverMode);
 
   // Fetch search results
   const {
@@ -61,14 +82,34 @@ export default function Movies() {
   } = useSearchMovies(debouncedSearchQuery, page);
 
   // Select current data source based on mode
-  const movies = isSearchMode ? searchResults : popularMovies;
-  const isLoading = isSearchMode ? loadingSearch : loadingPopular;
-  const isError = isSearchMode ? errorSearch : errorPopular;
-  const error = isSearchMode ? searchError : popularError;
-  const refetch = isSearchMode ? refetchSearch : refetchPopular;
-
-  // Sort movies (client-side sorting)
-  const sortedMovies = movies?.results
+  const movies = isSearchMode
+    ? searchResults
+    : isDiscoverMode
+    ? discoverMovies
+    : popularMovies;
+  const isLoading = isSearchMode
+    ? loadingSearch
+    : isDiscoverMode
+    ? loadingDiscover
+    : loadingPopular;
+  const isError = isSearchMode
+    ? errorSearch
+    : isDiscoverMode
+    ? errorDiscover
+    : errorPopular;
+  const error = isSearchMode
+    ? searchError
+    : isDiscoverMode
+    ? discoverError
+    : popularError;
+  const refetch = isSearchMode
+    ? refetchSearch
+    : isDiscoverMode
+    ? refetchDiscover
+    : refetchPopular;
+
+  // Sort search results within the page (client-side sorting); browsing arrives sorted
+  const sortedMovies = isSearchMode && movies?.results
     ? {
         ...movies,
         results: [...movies.results].sort((a, b) => {
@@ -136,6 +177,10 @@ export default function Movies() {
     e.preventDefault();
   };
 
+  const handleSuggestionSelect = (suggestion) => {
+    navigate(`/movies/${suggestion.id}`);
+  };
+
   const handleSortToggle = () => {
     setIsSortExpanded(!isSortExpanded);
   };
@@ -187,6 +232,8 @@ export default function Movies() {
             onChange={handleSearchChange}
             onClear={handleSearchClear}
             onSubmit={handleSearchSubmit}
+            suggestions={searchQuery ? suggestions : []}
+            onSuggestionSelect={handleSuggestionSelect}
             onSortToggle={handleSortToggle}
             isSortExpanded={isSortExpanded}
             currentSort={selectedSort}
@@ -10,16 +10,14 @@ import {
   useDeleteRating,
   useUpdateRating,
 } from "../hooks/useRatings";
-import { useMovieDetails } from "../hooks/useMovies";
+import { useMoviesBatch } from "../hooks/useMovies";
 import FadeIn from "../components/common/FadeIn";
 import StaggerContainer, {
   StaggerItem,
 } from "../components/common/StaggerContainer";
 import { getImageUrl } from "../utils/imageUtils";
 
-function MovieCard({ movieId, rating }) {
-  const { data: movie, isLoading } = useMovieDetails(movieId);
-
+function MovieCard({ movieId, movie, isLoading, rating }) {
   if (isLoading) {
     return (
       <div className="flex items-center gap-4">
@@ -182,6 +180,14 @@ export default function Ratings() {
 
   const ratings = ratingsResponse?.content || ratingsResponse || [];
 
+  // Load every rated movie in one request instead of one per card
+  const { data: ratedMovies, isLoading: isLoadingMovies } = useMoviesBatch(
+    ratings.map((r) => r.movieId)
+  );
+  const moviesById = new Map(
+    (ratedMovies || []).filter(Boolean).map((m) => [m.id, m])
+  );
+
   // Generate a key based on ratings data to force re-render when data changes
   // This ensures StaggerContainer animation resets when data updates
   const ratingsKey =
@@ -337,7 +343,12 @@ export default function Ratings() {
                       onClick={() => handleMovieClick(rating.movieId)}
                     >
                       {/*  Movie Card with Thumbnail & Title */}
-                      <MovieCard movieId={rating.movieId} rating={rating} />
+                      <MovieCard
+                        movieId={rating.movieId}
+                        movie={moviesById.get(Number(rating.movieId))}
+                        isLoading={isLoadingMovies}
+                        rating={rating}
+                      />
 
                       {/* Comment */}
                       {rating.comment && (
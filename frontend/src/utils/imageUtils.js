@@ -1,10 +1,12 @@
+import { API_BASE_URL, API_PATHS } from "../config/constants";
+
 // TMDB Image Configuration
-const TMDB_IMAGE_BASE_URL = "https://image.tmdb.org/t/p/";
+// Images are loaded through movie-service, which caches them on disk
 const TMDB_POSTER_SIZE = "w500";
 const TMDB_BACKDROP_SIZE = "w1280";
 
 /**
- * Builds a complete TMDB image URL from a path
+ * Builds an image proxy URL from a TMDB path
  * @param {string} path - The TMDB image path (e.g., "/abc123.jpg")
  * @param {string} size - The image size (default: w500)
  * @returns {string|null} - Complete image URL or null if path is invalid
@@ -21,9 +23,9 @@ export const buildTMDBImageUrl = (path, size = TMDB_POSTER_SIZE) => {
     return trimmedPath;
   }
 
-  // If it's a TMDB path (starts with /), build the complete URL
+  // If it's a TMDB path (starts with /), build the proxy URL
   if (trimmedPath.startsWith("/")) {
-    return `${TMDB_IMAGE_BASE_URL}${size}${trimmedPath}`;
+    return `${API_BASE_URL}${API_PATHS.MOVIES.IMAGE(size, trimmedPath)}`;
   }
 
   return null;
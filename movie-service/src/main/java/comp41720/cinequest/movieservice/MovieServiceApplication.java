@@ -3,9 +3,11 @@ package comp41720.cinequest.movieservice;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableCaching    // Enable Spring cache support
+@EnableScheduling    // Enable cache prewarming and refresh-ahead jobs
 public class MovieServiceApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(MovieServiceApplication.class, args);
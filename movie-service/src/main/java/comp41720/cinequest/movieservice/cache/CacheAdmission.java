@@ -0,0 +1,253 @@
+package comp41720.cinequest.movieservice.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Decides which loaded values are worth a place in Redis, so its memory holds the keys people actually ask for
+ * rather than every one-off search.
+ *
+ * Every cache lookup is counted in a TinyLFU frequency sketch (per replica; search is counted per query, not per
+ * page). A value is only stored when:
+ * 1. its frequency reaches the minimum for its class (cache.admission.min-frequency), e.g. a search query must
+ *    have been asked for twice, and
+ * 2. its class (popular, details, search) is within its byte budget (cache.admission.budget-mb), or the value is
+ *    more frequently used than the entries closest to expiry that it would replace, and evicting at most eight
+ *    of them makes it fit; those are then evicted.
+ * Budgets are tracked in Redis per class: a sorted set of stored keys by expiry time, their sizes, and a byte
+ * total. Stored keys also live longer the more popular they are, up to cache.admission.max-ttl-factor x TTL.
+ */
+@Component
+public class CacheAdmission {
+
+    private static final List<String> CLASSES = List.of("popular", "details", "search");
+
+    // Most entries a single write may push out
+    private static final int MAX_VICTIMS = 8;
+
+    // Drop index members whose key has expired, then list the entries that would have to go to fit ARGV[3] bytes.
+    // Returns the bytes still over budget once they are gone (0 or less when the value fits), then the entries.
+    private static final RedisScript<List> TRIM_SCRIPT = new DefaultRedisScript<>(
+            "local expired = redis.call('zrangebyscore', KEYS[1], '-inf', ARGV[1]) " +
+            "for _, member in ipairs(expired) do " +
+            "  local size = redis.call('hget', KEYS[2], member) " +
+            "  if size then redis.call('decrby', KEYS[3], size) redis.call('hdel', KEYS[2], member) end " +
+            "end " +
+            "if #expired > 0 then redis.call('zremrangebyscore', KEYS[1], '-inf', ARGV[1]) end " +
+            "local total = tonumber(redis.call('get', KEYS[3]) or '0') - tonumber(redis.call('hget', KEYS[2], ARGV[4]) or '0') " +
+            "local excess = total + tonumber(ARGV[3]) - tonumber(ARGV[2]) " +
+            "local result = {0} " +
+            "if excess <= 0 then return result end " +
+            "for _, member in ipairs(redis.call('zrange', KEYS[1], 0, tonumber(ARGV[5]))) do " +
+            "  if excess <= 0 then break end " +
+            "  if member ~= ARGV[4] then " +
+            "    result[#result + 1] = member " +
+            "    excess = excess - tonumber(redis.call('hget', KEYS[2], member) or '0') " +
+            "  end " +
+            "end " +
+            "result[1] = math.max(excess, 0) " +
+            "return result",
+            List.class);
+
+    // Record stored keys (replacing their previous sizes) and their expiry; ARGV holds key, expiry, size triples
+    private static final RedisScript<Long> RECORD_SCRIPT = new DefaultRedisScript<>(
+            "local total = 0 " +
+            "for i = 1, #ARGV, 3 do " +
+            "  local previous = redis.call('hget', KEYS[2], ARGV[i]) " +
+            "  if previous then redis.call('decrby', KEYS[3], previous) end " +
+            "  redis.call('zadd', KEYS[1], ARGV[i + 1], ARGV[i]) " +
+            "  redis.call('hset', KEYS[2], ARGV[i], ARGV[i + 2]) " +
+            "  total = redis.call('incrby', KEYS[3], ARGV[i + 2]) " +
+            "end " +
+            "return total",
+            Long.class);
+
+    // Forget evicted keys
+    private static final RedisScript<Long> REMOVE_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #ARGV do " +
+            "  local size = redis.call('hget', KEYS[2], ARGV[i]) " +
+            "  if size then redis.call('decrby', KEYS[3], size) redis.call('hdel', KEYS[2], ARGV[i]) end " +
+            "  redis.call('zrem', KEYS[1], ARGV[i]) " +
+            "end " +
+            "return 0",
+            Long.class);
+
+    private final FrequencySketch sketch;
+    private final RedisShards redisShards;
+    private final RedisGuard redisGuard;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Integer> minFrequency;
+    private final Map<String, Long> budgetBytes;
+
+    @Value("${cache.admission.enabled}")
+    private boolean enabled;
+
+    @Value("${cache.admission.hot-frequency}")
+    private int hotFrequency;
+
+    @Value("${cache.admission.max-ttl-factor}")
+    private double maxTtlFactor;
+
+    public CacheAdmission(RedisShards redisShards,
+                          RedisGuard redisGuard,
+                          MeterRegistry meterRegistry,
+                          @Value("${cache.admission.sketch-width}") int sketchWidth,
+                          @Value("${cache.admission.min-frequency.popular}") int popularMinFrequency,
+                          @Value("${cache.admission.min-frequency.details}") int detailsMinFrequency,
+                          @Value("${cache.admission.min-frequency.search}") int searchMinFrequency,
+                          @Value("${cache.admission.budget-mb.popular}") long popularBudgetMb,
+                          @Value("${cache.admission.budget-mb.details}") long detailsBudgetMb,
+                          @Value("${cache.admission.budget-mb.search}") long searchBudgetMb) {
+        this.sketch = new FrequencySketch(sketchWidth);
+        this.redisShards = redisShards;
+        this.redisGuard = redisGuard;
+        this.meterRegistry = meterRegistry;
+        this.minFrequency = Map.of(
+                "popular", popularMinFrequency,
+                "details", detailsMinFrequency,
+                "search", searchMinFrequency);
+        this.budgetBytes = Map.of(
+                "popular", popularBudgetMb * 1024 * 1024,
+                "details", detailsBudgetMb * 1024 * 1024,
+                "search", searchBudgetMb * 1024 * 1024);
+    }
+
+    public void recordAccess(String key) {
+        sketch.increment(frequencyKey(key));
+    }
+
+    /**
+     * Whether a value for this key would pass the frequency check now (the budget is not consulted).
+     */
+    public boolean isFrequentEnough(String key) {
+        String cache = MovieCacheKeys.cacheName(key);
+        return !enabled || !CLASSES.contains(cache)
+                || sketch.frequency(frequencyKey(key)) >= minFrequency.get(cache);
+    }
+
+    /**
+     * TTL for a value about to be stored: from 1x for a key nobody has asked for yet up to max-ttl-factor x
+     * for keys asked for hot-frequency times or more recently.
+     */
+    public long scaleTtl(String key, long ttlSeconds) {
+        if (!enabled || !CLASSES.contains(MovieCacheKeys.cacheName(key))) {
+            return ttlSeconds;
+        }
+        double heat = Math.min(1.0, sketch.frequency(frequencyKey(key)) / (double) hotFrequency);
+        return Math.round(ttlSeconds * (1 + (maxTtlFactor - 1) * heat));
+    }
+
+    /**
+     * Decide whether to store an encoded value of this size that expires at expiresAtMillis, recording it
+     * against its class budget if so. Entries pushed out to make room are passed to evict.
+     * Keys outside the budgeted classes are always admitted. If Redis is unavailable for the bookkeeping the
+     * value is admitted, as it would have been without admission control.
+     */
+    public boolean admit(String key, int size, long expiresAtMillis, Consumer<String> evict) {
+        String cache = MovieCacheKeys.cacheName(key);
+        if (!enabled || !CLASSES.contains(cache)) {
+            return true;
+        }
+
+        // 1. Frequency: one-off keys are not worth storing
+        int frequency = sketch.frequency(frequencyKey(key));
+        if (frequency < minFrequency.get(cache)) {
+            count(cache, "rejected");
+            return false;
+        }
+
+        // 2. Budget: when full, only a more frequently used value may replace the entries closest to expiry
+        boolean admitted = redisGuard.call("admission", () -> admitWithinBudget(cache, key, frequency, size,
+                expiresAtMillis, evict), true);
+        count(cache, admitted ? "admitted" : "rejected");
+        return admitted;
+    }
+
+    /**
+     * Count values stored without an admission decision against their class budgets, e.g. the movies of an
+     * admitted page, which it cannot be served without. Nothing is evicted to make room for them; admitting
+     * later values of the class brings it back within budget.
+     */
+    public void record(Map<String, Integer> sizes, long expiresAtMillis) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, List<String>> byClass = new HashMap<>();
+        sizes.forEach((key, size) -> {
+            String cache = MovieCacheKeys.cacheName(key);
+            if (CLASSES.contains(cache)) {
+                byClass.computeIfAbsent(cache, c -> new ArrayList<>())
+                        .addAll(List.of(key, String.valueOf(expiresAtMillis), String.valueOf(size)));
+            }
+        });
+        // One call per class: its bookkeeping keys all live on one node
+        byClass.forEach((cache, args) -> redisGuard.run("admission", () ->
+                redisShards.strings(MovieCacheKeys.admissionIndex(cache))
+                        .execute(RECORD_SCRIPT, indexKeys(cache), args.toArray())));
+    }
+
+    private boolean admitWithinBudget(String cache, String key, int frequency, int size, long expiresAtMillis,
+                                      Consumer<String> evict) {
+        List<String> indexKeys = indexKeys(cache);
+        StringRedisTemplate redis = redisShards.strings(indexKeys.get(0));
+
+        List<?> trim = redis.execute(TRIM_SCRIPT, indexKeys,
+                String.valueOf(System.currentTimeMillis()), String.valueOf(budgetBytes.get(cache)),
+                String.valueOf(size), key, String.valueOf(MAX_VICTIMS - 1));
+        if (trim != null && !trim.isEmpty()) {
+            // Even MAX_VICTIMS evictions would leave the class over budget: keep what is there
+            if (((Number) trim.get(0)).longValue() > 0) {
+                return false;
+            }
+
+            List<String> victimKeys = trim.subList(1, trim.size()).stream().map(Object::toString).toList();
+            if (!victimKeys.isEmpty()) {
+                int victimFrequency = victimKeys.stream()
+                        .mapToInt(victim -> sketch.frequency(frequencyKey(victim)))
+                        .max()
+                        .orElse(0);
+                if (frequency <= victimFrequency) {
+                    return false;
+                }
+
+                victimKeys.forEach(evict);
+                redis.execute(REMOVE_SCRIPT, indexKeys, victimKeys.toArray());
+                meterRegistry.counter("movie.cache.admission", "cache", cache, "result", "evicted")
+                        .increment(victimKeys.size());
+            }
+        }
+
+        redis.execute(RECORD_SCRIPT, indexKeys, key, String.valueOf(expiresAtMillis), String.valueOf(size));
+        return true;
+    }
+
+    private void count(String cache, String result) {
+        meterRegistry.counter("movie.cache.admission", "cache", cache, "result", result).increment();
+    }
+
+    private static List<String> indexKeys(String cache) {
+        return List.of(
+                MovieCacheKeys.admissionIndex(cache),
+                MovieCacheKeys.admissionSizes(cache),
+                MovieCacheKeys.admissionBytes(cache));
+    }
+
+    // Search popularity is a property of the query: every page of a popular query is worth keeping
+    private static String frequencyKey(String key) {
+        if (key.startsWith(MovieCacheKeys.SEARCH_PREFIX)) {
+            int pageSeparator = key.lastIndexOf(':');
+            return pageSeparator > MovieCacheKeys.SEARCH_PREFIX.length() ? key.substring(0, pageSeparator) : key;
+        }
+        return key;
+    }
+}
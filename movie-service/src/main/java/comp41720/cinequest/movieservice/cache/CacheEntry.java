@@ -0,0 +1,43 @@
+package comp41720.cinequest.movieservice.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Envelope stored in Redis and L1 around every cached value.
+ * The Redis TTL is the hard expiry; freshUntil is the soft expiry after which the value is served stale
+ * while a background refresh runs. The etag is a hash of the value, computed once when it is cached.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheEntry implements Serializable {
+
+    private Object value;
+
+    // Epoch millis when the value was fetched from TMDB
+    private long storedAt;
+
+    // Epoch millis after which the value is stale
+    private long freshUntil;
+
+    // Strong HTTP validator for the value, unquoted; null for entries written before it existed
+    private String etag;
+
+    @JsonIgnore
+    public boolean isFresh() {
+        return System.currentTimeMillis() < freshUntil;
+    }
+
+    /**
+     * Wrap a value written before entries had an envelope. It is treated as fresh until its Redis TTL runs out,
+     * which matches how it was cached.
+     */
+    public static CacheEntry legacy(Object value) {
+        return new CacheEntry(value, 0L, Long.MAX_VALUE, null);
+    }
+}
@@ -0,0 +1,66 @@
+package comp41720.cinequest.movieservice.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for the movie caches, exposed through /actuator/metrics:
+ * - movie.cache.requests: lookups by cache (popular, details, search), result (hit, stale, miss)
+ *   and tier that answered (local, redis, none)
+ * - movie.cache.redis: Redis call latency by operation (get, mget, set)
+ * - movie.cache.payload.size: encoded bytes written to Redis, by cache
+ * Meters are created once per tag combination and reused, so recording stays cheap on the request path.
+ */
+@Component
+public class CacheMetrics {
+
+    public static final String HIT = "hit";
+    public static final String STALE = "stale";
+    public static final String MISS = "miss";
+
+    public static final String TIER_LOCAL = "local";
+    public static final String TIER_REDIS = "redis";
+    public static final String TIER_NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> lookups = new ConcurrentHashMap<>();
+    private final Map<String, Timer> redisTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> payloadSizes = new ConcurrentHashMap<>();
+
+    public CacheMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordLookup(String key, String result, String tier) {
+        String cache = MovieCacheKeys.cacheName(key);
+        lookups.computeIfAbsent(cache + ':' + result + ':' + tier, id -> Counter.builder("movie.cache.requests")
+                .description("Movie cache lookups")
+                .tag("cache", cache)
+                .tag("result", result)
+                .tag("tier", tier)
+                .register(meterRegistry)).increment();
+    }
+
+    public <T> T timeRedis(String operation, Supplier<T> call) {
+        return redisTimers.computeIfAbsent(operation, op -> Timer.builder("movie.cache.redis")
+                .description("Redis call latency for movie caches")
+                .tag("operation", op)
+                .register(meterRegistry)).record(call);
+    }
+
+    public void recordPayloadSize(String key, int bytes) {
+        String cache = MovieCacheKeys.cacheName(key);
+        payloadSizes.computeIfAbsent(cache, name -> DistributionSummary.builder("movie.cache.payload.size")
+                .description("Encoded size of cache values written to Redis")
+                .baseUnit("bytes")
+                .tag("cache", name)
+                .register(meterRegistry)).record(bytes);
+    }
+}
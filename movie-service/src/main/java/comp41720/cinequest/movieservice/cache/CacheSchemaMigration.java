@@ -0,0 +1,367 @@
+package comp41720.cinequest.movieservice.cache;
+
+import comp41720.cinequest.movieservice.cache.codec.CacheValueCodecs;
+import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.MovieIdPage;
+import comp41720.cinequest.movieservice.model.TMDBResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carries cache entries over from the previous schema version (MovieCacheKeys.SCHEMA_VERSION - 1) after a
+ * deploy, so a new build starts warm instead of sending every request to TMDB.
+ *
+ * Two paths, both translating an entry to the current layout and key (search keys holding the raw query are
+ * re-keyed to its hash) and re-encoding it in the current codec format:
+ * 1. On the fly: a lookup that misses in the current namespace reads the previous version's key instead, and
+ *    stores the translation (SET NX, so it never overwrites a value loaded by this build).
+ * 2. In the background: every cache.migration.interval-ms one replica, under a lease, SCANs the next
+ *    cache.migration.batch-size keys of the previous namespace on each Redis node and stores their
+ *    translations. Scan positions are kept in Redis, so another replica carries on where the last one stopped.
+ * Once every node has been scanned a marker is set and both paths stop; at startup they also stop straight
+ * away if no node holds a key of the previous namespace. Translated entries keep their original expiry (values
+ * stored without an envelope stay fresh for their key's remaining TTL); the previous version's keys are left
+ * to expire, so replicas still running it are unaffected. They are not counted against this version's
+ * admission budgets.
+ */
+@Component
+@Slf4j
+public class CacheSchemaMigration {
+
+    private static final String LEASE_KEY = MovieCacheKeys.MIGRATION_PREFIX + "run";
+    private static final String SCANNED = "done";
+    private static final int PROBE_COUNT = 1000;
+
+    // One SCAN step; the result is [next cursor, keys]
+    private static final RedisScript<List> SCAN_SCRIPT = new DefaultRedisScript<>(
+            "return redis.call('scan', ARGV[1], 'MATCH', ARGV[2], 'COUNT', ARGV[3])",
+            List.class);
+
+    private final RedisShards redisShards;
+    private final CacheValueCodecs codecs;
+    private final RedisGuard redisGuard;
+    private final DistributedLease lease;
+    private final MeterRegistry meterRegistry;
+
+    // Until the marker is seen, misses also look in the previous namespace
+    private volatile boolean active;
+
+    @Value("${cache.migration.batch-size}")
+    private int batchSize;
+
+    @Value("${cache.migration.interval-ms}")
+    private long intervalMs;
+
+    @Value("${cache.ttl.details}")
+    private long detailsCacheTTL;
+
+    @Value("${cache.stale.grace}")
+    private long staleGrace;
+
+    public CacheSchemaMigration(RedisShards redisShards,
+                                CacheValueCodecs codecs,
+                                RedisGuard redisGuard,
+                                DistributedLease lease,
+                                MeterRegistry meterRegistry,
+                                @Value("${cache.migration.enabled}") boolean enabled) {
+        this.redisShards = redisShards;
+        this.codecs = codecs;
+        this.redisGuard = redisGuard;
+        this.lease = lease;
+        this.meterRegistry = meterRegistry;
+        this.active = enabled;
+    }
+
+    /**
+     * Stop looking in the previous namespace at once when there is nothing to carry over: the migration has
+     * finished, or no node holds a key of the previous version (e.g. Redis was empty when this version was
+     * first deployed). Misses then cost no second lookup. If Redis cannot be asked, migrateBatch decides later.
+     * The done marker is read first, so once the migration has finished a start costs one GET, never a SCAN.
+     */
+    @PostConstruct
+    public void checkPrevious() {
+        if (!active) {
+            return;
+        }
+        Boolean done = migrationDone(null);
+        if (Boolean.TRUE.equals(done)) {
+            active = false;
+            return;
+        }
+        if (done == null) {
+            // Redis cannot say whether the migration finished; do not scan blind
+            return;
+        }
+
+        boolean present = false;
+        for (RedisShards.Shard shard : redisShards.all()) {
+            present |= redisGuard.call("migrate", () -> hasPreviousKeys(shard), true);
+        }
+        if (!present) {
+            markDone();
+            log.info("No cache entries of schema version {} found, nothing to migrate",
+                    MovieCacheKeys.SCHEMA_VERSION - 1);
+        }
+    }
+
+    /**
+     * Translations of what the previous version stored for these current keys, stored under the current keys.
+     * Keys with nothing to carry over are absent from the result; empty once the migration has finished.
+     */
+    public Map<String, CacheEntry> readPrevious(List<String> keys) {
+        Map<String, CacheEntry> found = new HashMap<>();
+        if (!active) {
+            return found;
+        }
+
+        List<String> previousKeys = new ArrayList<>();
+        for (String key : keys) {
+            String previousKey = MovieCacheKeys.toPrevious(key);
+            if (previousKey != null) {
+                previousKeys.add(previousKey);
+            }
+        }
+        if (previousKeys.isEmpty()) {
+            return found;
+        }
+
+        List<byte[]> values = redisGuard.call("mget", () -> redisShards.multiGet(previousKeys), null);
+        Map<String, CacheEntry> upgraded = upgradeAll(previousKeys, values);
+        store(upgraded);
+
+        for (String key : keys) {
+            if (upgraded.containsKey(key)) {
+                found.put(key, upgraded.get(key));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Entries for the current version translated from one the previous version stored under previousKey:
+     * the entry itself under its current key, plus any entries the new layout splits out of it.
+     * Empty when there is nothing worth carrying over, including entries of unknown expiry (values stored
+     * without an envelope, whose expiry only their Redis key knows; see withLegacyExpiry).
+     */
+    public Map<String, CacheEntry> upgrade(String previousKey, CacheEntry entry) {
+        String key = MovieCacheKeys.fromPrevious(previousKey);
+        if (key == null || entry.getFreshUntil() == Long.MAX_VALUE) {
+            return Map.of();
+        }
+
+        Map<String, CacheEntry> upgraded = new LinkedHashMap<>();
+        // Version 2: pages are stored as movie ids, each movie under its details key
+        if (entry.getValue() instanceof TMDBResponse response && !key.startsWith(MovieCacheKeys.DETAILS_PREFIX)) {
+            // The page cannot be served without its movies, so they live at least as long as it does
+            long moviesFreshUntil = Math.max(entry.getStoredAt() + TimeUnit.SECONDS.toMillis(detailsCacheTTL),
+                    entry.getFreshUntil());
+            for (Map.Entry<String, Movie> movie : MovieListCache.moviesOf(response).entrySet()) {
+                upgraded.put(movie.getKey(), new CacheEntry(movie.getValue(), entry.getStoredAt(), moviesFreshUntil,
+                        EntityTags.of(movie.getValue())));
+            }
+            MovieIdPage page = MovieListCache.idPageOf(response);
+            upgraded.put(key, new CacheEntry(page, entry.getStoredAt(), entry.getFreshUntil(), EntityTags.of(page)));
+        } else {
+            upgraded.put(key, entry);
+        }
+        return upgraded;
+    }
+
+    /**
+     * Re-encode the next batch of the previous version's keys on every Redis node.
+     */
+    @Scheduled(initialDelayString = "${cache.migration.interval-ms}", fixedDelayString = "${cache.migration.interval-ms}")
+    public void migrateBatch() {
+        if (!active || !redisGuard.isAvailable()) {
+            return;
+        }
+        if (Boolean.TRUE.equals(migrationDone(false))) {
+            active = false;
+            return;
+        }
+        // Held until it expires, so the cluster runs one batch per interval
+        if (lease.tryAcquire(LEASE_KEY, Duration.ofMillis(intervalMs)) == null) {
+            return;
+        }
+
+        boolean finished = true;
+        for (RedisShards.Shard shard : redisShards.all()) {
+            finished &= redisGuard.call("migrate", () -> migrateShard(shard), false);
+        }
+
+        if (finished) {
+            markDone();
+            log.info("Cache schema migration to version {} complete", MovieCacheKeys.SCHEMA_VERSION);
+        }
+    }
+
+    // Whether the done marker is set; fallback if Redis cannot be asked
+    private Boolean migrationDone(Boolean fallback) {
+        String doneKey = MovieCacheKeys.migrationDone();
+        return redisGuard.call("get", () -> redisShards.strings(doneKey).hasKey(doneKey), fallback);
+    }
+
+    private void markDone() {
+        String doneKey = MovieCacheKeys.migrationDone();
+        // Kept for as long as any entry of the previous version can live
+        Duration markerTtl = Duration.ofSeconds(2 * detailsCacheTTL + staleGrace);
+        redisGuard.run("set", () -> redisShards.strings(doneKey).opsForValue().set(doneKey, "1", markerTtl));
+        active = false;
+    }
+
+    // SCAN a node until the first key of the previous namespace, PROBE_COUNT keys per round trip
+    private boolean hasPreviousKeys(RedisShards.Shard shard) {
+        String cursor = "0";
+        do {
+            List<?> step = shard.strings().execute(SCAN_SCRIPT, List.of(),
+                    cursor, MovieCacheKeys.PREVIOUS_NAMESPACE + "*", String.valueOf(PROBE_COUNT));
+            if (step == null || step.size() < 2) {
+                return true;
+            }
+            if (((List<?>) step.get(1)).stream().anyMatch(key -> MovieCacheKeys.fromPrevious(key.toString()) != null)) {
+                return true;
+            }
+            cursor = step.get(0).toString();
+        } while (!"0".equals(cursor));
+        return false;
+    }
+
+    // One SCAN step on a node; true once the node has been scanned completely
+    private boolean migrateShard(RedisShards.Shard shard) {
+        String cursorKey = MovieCacheKeys.migrationCursor(shard.name());
+        String cursor = redisShards.strings(cursorKey).opsForValue().get(cursorKey);
+        if (SCANNED.equals(cursor)) {
+            return true;
+        }
+
+        List<?> step = shard.strings().execute(SCAN_SCRIPT, List.of(),
+                cursor != null ? cursor : "0", MovieCacheKeys.PREVIOUS_NAMESPACE + "*", String.valueOf(batchSize));
+        if (step == null || step.size() < 2) {
+            return false;
+        }
+        String next = step.get(0).toString();
+        List<String> previousKeys = ((List<?>) step.get(1)).stream()
+                .map(Object::toString)
+                .filter(key -> MovieCacheKeys.fromPrevious(key) != null)
+                .toList();
+
+        if (!previousKeys.isEmpty()) {
+            List<byte[]> values = shard.values().opsForValue().multiGet(previousKeys);
+            store(upgradeAll(previousKeys, values));
+        }
+
+        boolean done = "0".equals(next);
+        redisShards.strings(cursorKey).opsForValue().set(cursorKey, done ? SCANNED : next,
+                Duration.ofSeconds(detailsCacheTTL + staleGrace));
+        return done;
+    }
+
+    // Decode and translate the previous version's values for these keys
+    private Map<String, CacheEntry> upgradeAll(List<String> previousKeys, List<byte[]> values) {
+        Map<String, CacheEntry> decoded = new LinkedHashMap<>();
+        for (int i = 0; values != null && i < previousKeys.size(); i++) {
+            CacheEntry entry = decode(previousKeys.get(i), values.get(i));
+            if (entry != null) {
+                decoded.put(previousKeys.get(i), entry);
+            }
+        }
+
+        Map<String, CacheEntry> upgraded = new LinkedHashMap<>();
+        withLegacyExpiry(decoded).forEach((previousKey, entry) -> upgraded.putAll(upgrade(previousKey, entry)));
+        return upgraded;
+    }
+
+    // Values stored without an envelope were fresh until their key expired: read that from the key's PTTL
+    // (one pipelined round trip per node) and keep them fresh until then. Keys already gone are dropped.
+    private Map<String, CacheEntry> withLegacyExpiry(Map<String, CacheEntry> entries) {
+        Map<RedisShards.Shard, List<String>> legacyByShard = new LinkedHashMap<>();
+        entries.forEach((previousKey, entry) -> {
+            if (entry.getFreshUntil() == Long.MAX_VALUE) {
+                legacyByShard.computeIfAbsent(redisShards.shardFor(previousKey), shard -> new ArrayList<>())
+                        .add(previousKey);
+            }
+        });
+        if (legacyByShard.isEmpty()) {
+            return entries;
+        }
+
+        Map<String, CacheEntry> resolved = new LinkedHashMap<>(entries);
+        long now = System.currentTimeMillis();
+        legacyByShard.forEach((shard, keys) -> {
+            List<Object> ttls = redisGuard.call("migrate", () ->
+                    shard.values().executePipelined(new SessionCallback<Object>() {
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public Object execute(RedisOperations operations) {
+                            keys.forEach(key -> operations.getExpire(key, TimeUnit.MILLISECONDS));
+                            return null;
+                        }
+                    }), List.of());
+            for (int i = 0; i < keys.size(); i++) {
+                CacheEntry legacy = resolved.remove(keys.get(i));
+                if (i < ttls.size() && ttls.get(i) instanceof Long ttlMillis && ttlMillis > 0) {
+                    resolved.put(keys.get(i), new CacheEntry(legacy.getValue(), legacy.getStoredAt(),
+                            now + ttlMillis, legacy.getEtag()));
+                }
+            }
+        });
+        return resolved;
+    }
+
+    // SET NX each entry for the rest of its lifetime, one pipelined round trip per node
+    private void store(Map<String, CacheEntry> entries) {
+        long now = System.currentTimeMillis();
+        Map<RedisShards.Shard, Map<String, byte[]>> byShard = new LinkedHashMap<>();
+        Map<String, Long> ttlMillis = new HashMap<>();
+        entries.forEach((key, entry) -> {
+            long hardTtlMillis = entry.getFreshUntil() + TimeUnit.SECONDS.toMillis(staleGrace) - now;
+            if (hardTtlMillis > 0) {
+                byShard.computeIfAbsent(redisShards.shardFor(key), shard -> new LinkedHashMap<>())
+                        .put(key, codecs.encode(key, entry));
+                ttlMillis.put(key, hardTtlMillis);
+            }
+        });
+
+        byShard.forEach((shard, encoded) -> {
+            List<Object> results = redisGuard.call("migrate", () ->
+                    shard.values().executePipelined(new SessionCallback<Object>() {
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public Object execute(RedisOperations operations) {
+                            encoded.forEach((key, bytes) -> operations.opsForValue()
+                                    .setIfAbsent(key, bytes, ttlMillis.get(key), TimeUnit.MILLISECONDS));
+                            return null;
+                        }
+                    }), List.of());
+            long migrated = results.stream().filter(Boolean.TRUE::equals).count();
+            meterRegistry.counter("movie.cache.migration", "result", "migrated").increment(migrated);
+            meterRegistry.counter("movie.cache.migration", "result", "present").increment(results.size() - migrated);
+        });
+    }
+
+    private CacheEntry decode(String key, byte[] bytes) {
+        try {
+            return codecs.decode(bytes);
+        } catch (SerializationException ex) {
+            log.debug("Unreadable previous-version cache entry {}, not migrated: {}", key, ex.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package comp41720.cinequest.movieservice.cache;
+
+/**
+ * HTTP caching metadata for a cached value.
+ *
+ * @param etag         strong validator, unquoted
+ * @param freshSeconds seconds until the entry goes stale (0 if it already is)
+ * @param staleSeconds further seconds the stale entry is still served while it is refreshed
+ */
+public record CacheValidator(String etag, long freshSeconds, long staleSeconds) {
+}
@@ -0,0 +1,36 @@
+package comp41720.cinequest.movieservice.cache;
+
+/**
+ * A response body held in ResponseBodyCache, written by CachedResponseBodyConverter.
+ * Keeps the value it was serialized from, to re-serialize if the cached bytes are evicted before the write.
+ */
+public final class CachedResponseBody {
+
+    private final ResponseBodyCache cache;
+    private final ResponseBodyCache.Entry entry;
+    private final int version;
+    private final Object value;
+
+    CachedResponseBody(ResponseBodyCache cache, ResponseBodyCache.Entry entry, int version, Object value) {
+        this.cache = cache;
+        this.entry = entry;
+        this.version = version;
+        this.value = value;
+    }
+
+    /**
+     * The serialized body in a reused per-thread buffer (only the first length() bytes are the body),
+     * or null if it was evicted in the meantime.
+     */
+    public byte[] copyBytes() {
+        return cache.copy(entry, version);
+    }
+
+    public int length() {
+        return entry.length;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+}
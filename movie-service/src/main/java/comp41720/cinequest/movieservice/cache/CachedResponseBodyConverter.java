@@ -0,0 +1,59 @@
+package comp41720.cinequest.movieservice.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a CachedResponseBody as application/json straight from ResponseBodyCache, skipping Jackson.
+ * If the cached bytes were evicted after the lookup, the original value is serialized as usual.
+ */
+public class CachedResponseBodyConverter implements HttpMessageConverter<CachedResponseBody> {
+
+    private final ObjectMapper objectMapper;
+
+    public CachedResponseBodyConverter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return CachedResponseBody.class.isAssignableFrom(clazz)
+                && (mediaType == null || MediaType.APPLICATION_JSON.isCompatibleWith(mediaType));
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return List.of(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    public CachedResponseBody read(Class<? extends CachedResponseBody> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Cached response bodies are write-only", inputMessage);
+    }
+
+    @Override
+    public void write(CachedResponseBody body, MediaType contentType, HttpOutputMessage outputMessage)
+            throws IOException {
+        outputMessage.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        byte[] bytes = body.copyBytes();
+        if (bytes != null) {
+            outputMessage.getHeaders().setContentLength(body.length());
+            outputMessage.getBody().write(bytes, 0, body.length());
+        } else {
+            objectMapper.writeValue(outputMessage.getBody(), body.getValue());
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package comp41720.cinequest.movieservice.cache;
+
+import comp41720.cinequest.movieservice.cache.codec.CacheValueCodecs;
+import comp41720.cinequest.movieservice.index.MovieIngestListener;
+import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.MovieIdPage;
+import comp41720.cinequest.movieservice.model.TMDBResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Local-disk copy of the hottest cache entries, so a replica does not start from nothing after Redis is
+ * flushed or restarted, and still has something to serve when Redis and TMDB are both down.
+ *
+ * Every cache.snapshot.interval-ms (and on shutdown) the warm popular pages, the most requested movie details
+ * and whatever is in L1 (plus the movies of every page saved) are written to cache.snapshot.path. At startup the file is memory-mapped: entries
+ * Redis no longer has are put back (if still within their hard TTL) and their movies are fed to the local
+ * indexes. The mapping is kept, and the TMDB fallbacks read from it when neither Redis nor TMDB can answer.
+ *
+ * File layout: a header (magic, version, written-at millis) followed by records of
+ * [key length][key][value length][value in the Redis codec format][CRC32 of key and value].
+ * Records are self-delimiting, so the file can be appended to; on load a later record for the same key wins
+ * and a truncated or corrupt tail ends the read, keeping every record before it.
+ */
+@Component
+@Slf4j
+public class CatalogSnapshot {
+
+    private static final int MAGIC = 0x43514e53; // "CQNS"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = Integer.BYTES + Short.BYTES + Long.BYTES;
+
+    private final MovieCache movieCache;
+    private final HotKeyTracker hotKeyTracker;
+    private final CacheValueCodecs codecs;
+    private final List<MovieIngestListener> ingestListeners;
+    private final RedisGuard redisGuard;
+    private final CacheSchemaMigration schemaMigration;
+
+    // Current mapping of the snapshot file and where each key's record is in it
+    private volatile Mapping mapping = Mapping.EMPTY;
+
+    @Value("${cache.snapshot.enabled}")
+    private boolean enabled;
+
+    @Value("${cache.snapshot.path}")
+    private Path path;
+
+    @Value("${cache.snapshot.max-entries}")
+    private int maxEntries;
+
+    @Value("${cache.prewarm.popular-pages}")
+    private int popularPages;
+
+    @Value("${cache.prewarm.top-details}")
+    private int topDetails;
+
+    public CatalogSnapshot(MovieCache movieCache,
+                           HotKeyTracker hotKeyTracker,
+                           CacheValueCodecs codecs,
+                           List<MovieIngestListener> ingestListeners,
+                           RedisGuard redisGuard,
+                           CacheSchemaMigration schemaMigration) {
+        this.movieCache = movieCache;
+        this.hotKeyTracker = hotKeyTracker;
+        this.codecs = codecs;
+        this.ingestListeners = ingestListeners;
+        this.redisGuard = redisGuard;
+        this.schemaMigration = schemaMigration;
+    }
+
+    /**
+     * Map the snapshot left by the previous run and seed Redis, L1 and the local indexes from it.
+     * Runs before the first warm-up, so warm-up only has to refresh what the snapshot could not restore.
+     */
+    @PostConstruct
+    public void load() {
+        if (!enabled || !Files.isReadable(path)) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        try {
+            mapping = Mapping.open(path);
+        } catch (IOException ex) {
+            log.warn("Could not read cache snapshot {}: {}", path, ex.getMessage());
+            return;
+        }
+
+        int seeded = 0;
+        boolean redisAvailable = true;
+        for (String key : mapping.index.keySet()) {
+            CacheEntry entry = read(key);
+            if (entry == null) {
+                continue;
+            }
+            ingest(entry.getValue());
+            if (!redisAvailable) {
+                continue;
+            }
+            try {
+                // A snapshot written by the previous schema version is restored in the current layout
+                Map<String, CacheEntry> entries = MovieCacheKeys.fromPrevious(key) != null
+                        ? schemaMigration.upgrade(key, entry) : Map.of(key, entry);
+                for (Map.Entry<String, CacheEntry> restored : entries.entrySet()) {
+                    if (movieCache.seed(restored.getKey(), restored.getValue())) {
+                        seeded++;
+                    }
+                }
+            } catch (RuntimeException ex) {
+                // Redis unavailable: keep the mapping, the fallbacks can still serve from it
+                log.warn("Could not seed cache from snapshot: {}", ex.getMessage());
+                redisAvailable = false;
+            }
+        }
+
+        log.info("Loaded cache snapshot {}: {} entries, {} restored to Redis, in {} ms", path,
+                mapping.index.size(), seeded, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * The snapshot's copy of a key regardless of age, or null if it has none.
+     */
+    public <T> T get(String key, Class<T> type) {
+        CacheEntry entry = read(key);
+        return entry != null && type.isInstance(entry.getValue()) ? type.cast(entry.getValue()) : null;
+    }
+
+    /**
+     * The snapshot's copies of many keys regardless of age; keys it has none for are absent from the result.
+     */
+    public <T> Map<String, T> getAll(List<String> keys, Class<T> type) {
+        Map<String, T> found = new HashMap<>();
+        for (String key : keys) {
+            T value = get(key, type);
+            if (value != null) {
+                found.put(key, value);
+            }
+        }
+        return found;
+    }
+
+    @Scheduled(initialDelayString = "${cache.snapshot.interval-ms}", fixedDelayString = "${cache.snapshot.interval-ms}")
+    public void save() {
+        if (!enabled) {
+            return;
+        }
+        // Redis lookups are skipped while it is down, which would leave only L1 in the snapshot:
+        // the snapshot on disk is the best copy we have, do not replace it
+        if (!redisGuard.isAvailable()) {
+            log.warn("Skipping cache snapshot, Redis is unavailable");
+            return;
+        }
+
+        // 1. Collect the hot set: warm popular pages, most requested details, then whatever is in L1
+        Set<String> keys = new LinkedHashSet<>();
+        for (int page = 1; page <= popularPages; page++) {
+            keys.add(MovieCacheKeys.popular(page));
+        }
+        for (Long movieId : hotKeyTracker.topDetails(topDetails)) {
+            keys.add(MovieCacheKeys.details(movieId));
+        }
+        for (String key : movieCache.localKeys()) {
+            if (!"other".equals(MovieCacheKeys.cacheName(key))) {
+                keys.add(key);
+            }
+        }
+
+        // A lookup that failed looks like a miss, and would silently drop that entry from the snapshot.
+        // Counted per thread: all lookups below run on this one, request-thread failures do not count.
+        long fallbacksBefore = redisGuard.fallbackCount();
+        Map<String, byte[]> records = new HashMap<>();
+        try {
+            List<String> pending = new ArrayList<>(keys);
+            for (int i = 0; i < pending.size() && records.size() < maxEntries; i++) {
+                String key = pending.get(i);
+                CacheEntry entry = movieCache.peekEntry(key);
+                if (entry == null) {
+                    continue;
+                }
+                records.put(key, codecs.encode(key, entry));
+
+                // A page is only usable with its movies, which are cached under their own keys
+                if (entry.getValue() instanceof MovieIdPage page && page.getIds() != null) {
+                    for (Long movieId : page.getIds()) {
+                        if (keys.add(MovieCacheKeys.details(movieId))) {
+                            pending.add(MovieCacheKeys.details(movieId));
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException ex) {
+            // Redis is down: the snapshot on disk is the best copy we have, do not replace it
+            log.warn("Skipping cache snapshot, cache not readable: {}", ex.getMessage());
+            return;
+        }
+        if (redisGuard.fallbackCount() != fallbacksBefore) {
+            log.warn("Skipping cache snapshot, some Redis lookups failed while collecting it");
+            return;
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+
+        // 2. Write a new file next to the old one and swap it in, so a crash never leaves a half-written snapshot
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (OutputStream file = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                writeHeader(out);
+                for (Map.Entry<String, byte[]> record : records.entrySet()) {
+                    writeRecord(out, record.getKey(), record.getValue());
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            mapping = Mapping.open(path);
+            log.debug("Wrote cache snapshot {} with {} entries", path, records.size());
+        } catch (IOException ex) {
+            log.warn("Failed to write cache snapshot {}: {}", path, ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        save();
+    }
+
+    private CacheEntry read(String key) {
+        Mapping current = mapping;
+        Record record = current.index.get(key);
+        if (record == null && MovieCacheKeys.toPrevious(key) != null) {
+            // Snapshot written by the previous schema version; callers accept its value types
+            record = current.index.get(MovieCacheKeys.toPrevious(key));
+        }
+        if (record == null) {
+            return null;
+        }
+
+        byte[] value = new byte[record.length];
+        current.buffer.get(record.offset, value);
+        try {
+            return codecs.decode(value);
+        } catch (RuntimeException ex) {
+            log.warn("Unreadable snapshot entry for key {}: {}", key, ex.getMessage());
+            return null;
+        }
+    }
+
+    private void ingest(Object value) {
+        Collection<Movie> movies = null;
+        if (value instanceof TMDBResponse response && response.getResults() != null) {
+            movies = response.getResults();
+        } else if (value instanceof Movie movie) {
+            movies = List.of(movie);
+        }
+        if (movies != null) {
+            for (MovieIngestListener listener : ingestListeners) {
+                listener.ingest(movies);
+            }
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(System.currentTimeMillis());
+    }
+
+    private static void writeRecord(DataOutputStream out, String key, byte[] value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(keyBytes);
+        crc.update(value);
+
+        out.writeInt(keyBytes.length);
+        out.write(keyBytes);
+        out.writeInt(value.length);
+        out.write(value);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private record Record(int offset, int length) {
+    }
+
+    private record Mapping(ByteBuffer buffer, Map<String, Record> index) {
+
+        static final Mapping EMPTY = new Mapping(ByteBuffer.allocate(0), Map.of());
+
+        static Mapping open(Path path) throws IOException {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                throw new IOException("not a cache snapshot or unsupported version");
+            }
+            buffer.getLong();
+
+            // Only the record positions are read here; values are decoded from the mapping when asked for
+            Map<String, Record> index = new HashMap<>();
+            try {
+                while (buffer.hasRemaining()) {
+                    int start = buffer.position();
+                    int keyLength = buffer.getInt();
+                    if (keyLength < 0 || keyLength > buffer.remaining()) {
+                        throw new IllegalArgumentException("bad key length");
+                    }
+                    byte[] key = new byte[keyLength];
+                    buffer.get(key);
+                    int valueLength = buffer.getInt();
+                    int valueOffset = buffer.position();
+                    buffer.position(valueOffset + valueLength);
+                    int checksum = buffer.getInt();
+
+                    CRC32 crc = new CRC32();
+                    crc.update(key);
+                    crc.update(buffer.slice(valueOffset, valueLength));
+                    if ((int) crc.getValue() != checksum) {
+                        log.warn("Cache snapshot {} is corrupt at byte {}, ignoring the rest", path, start);
+                        break;
+                    }
+                    index.put(new String(key, StandardCharsets.UTF_8), new Record(valueOffset, valueLength));
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException ex) {
+                log.warn("Cache snapshot {} ends with a truncated record, ignoring it", path);
+            }
+            return new Mapping(buffer, index);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package comp41720.cinequest.movieservice.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Short-lived Redis lease (SET NX PX) used so only one replica refills a cache key at a time.
+ * The lease expires on its own, so a crashed holder only delays other replicas by the lease TTL.
+ * A lease lives on the same Redis shard as the cache key it guards.
+ */
+@Component
+public class DistributedLease {
+
+    private static final String LEASE_PREFIX = "lease:";
+
+    // Delete the lease only if we still own it
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final RedisShards redisShards;
+    private final RedisGuard redisGuard;
+
+    @Value("${cache.lease.ttl-ms}")
+    private long leaseTtlMs;
+
+    public DistributedLease(RedisShards redisShards, RedisGuard redisGuard) {
+        this.redisShards = redisShards;
+        this.redisGuard = redisGuard;
+    }
+
+    /**
+     * Try to acquire the lease for a cache key.
+     * Returns a token to pass to release(), or null if another replica holds it.
+     */
+    public String tryAcquire(String key) {
+        return tryAcquire(key, Duration.ofMillis(leaseTtlMs));
+    }
+
+    /**
+     * Same, for work that takes longer than one TMDB call (e.g. a periodic job that should run on one replica).
+     */
+    public String tryAcquire(String key, Duration ttl) {
+        String token = UUID.randomUUID().toString();
+        // Without Redis there is nothing to coordinate with; let this replica load
+        Boolean acquired = redisGuard.call("lease", () -> redisShards.strings(key).opsForValue()
+                .setIfAbsent(LEASE_PREFIX + key, token, ttl), true);
+        return Boolean.TRUE.equals(acquired) ? token : null;
+    }
+
+    public void release(String key, String token) {
+        redisGuard.run("lease", () ->
+                redisShards.strings(key).execute(RELEASE_SCRIPT, List.of(LEASE_PREFIX + key), token));
+    }
+
+    /**
+     * True while some replica holds the lease for a cache key.
+     */
+    public boolean isHeld(String key) {
+        return Boolean.TRUE.equals(redisGuard.call("lease", () ->
+                redisShards.strings(key).hasKey(LEASE_PREFIX + key), false));
+    }
+
+    public long getLeaseTtlMs() {
+        return leaseTtlMs;
+    }
+}
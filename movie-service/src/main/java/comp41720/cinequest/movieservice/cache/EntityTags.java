@@ -0,0 +1,33 @@
+package comp41720.cinequest.movieservice.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Strong ETags for cached values: a truncated SHA-256 of the value's JSON form, so the tag only changes when
+ * the content does, not when the entry is refreshed.
+ */
+public final class EntityTags {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // 128 bits is plenty to tell versions of one resource apart
+    private static final int TAG_BYTES = 16;
+
+    private EntityTags() {
+    }
+
+    public static String of(Object value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(MAPPER.writeValueAsBytes(value));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, TAG_BYTES));
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Failed to compute ETag", ex);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package comp41720.cinequest.movieservice.cache;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Approximate access counts for an unbounded set of keys in fixed memory (a count-min sketch, as in TinyLFU).
+ *
+ * Each key increments one counter in each of four rows; its estimate is the smallest of the four, which can
+ * only over-count when other keys collide in every row. Counters stop at 15, and once 10 x width increments
+ * have been recorded every counter is halved, so estimates follow recent traffic rather than all-time totals.
+ * Updates are not atomic across rows: under contention an increment may be lost, which only makes the
+ * estimate slightly low.
+ */
+public class FrequencySketch {
+
+    private static final int ROWS = 4;
+    private static final int MAX_COUNT = 15;
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private final AtomicIntegerArray counters;
+    private final int indexBits;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+    private final AtomicBoolean resetting = new AtomicBoolean(false);
+
+    /**
+     * width is rounded up to a power of two; about ten times the number of distinct hot keys is plenty.
+     */
+    public FrequencySketch(int width) {
+        int rowWidth = Integer.highestOneBit(Math.max(width, 64) - 1) << 1;
+        this.indexBits = Integer.numberOfTrailingZeros(rowWidth);
+        this.counters = new AtomicIntegerArray(ROWS * rowWidth);
+        this.sampleSize = 10 * rowWidth;
+    }
+
+    public void increment(String key) {
+        long hash = spread(key);
+        for (int row = 0; row < ROWS; row++) {
+            int index = indexOf(hash, row);
+            // Saturates at MAX_COUNT even with concurrent increments of the same counter
+            int count;
+            do {
+                count = counters.get(index);
+            } while (count < MAX_COUNT && !counters.compareAndSet(index, count, count + 1));
+        }
+
+        if (additions.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+    }
+
+    public int frequency(String key) {
+        long hash = spread(key);
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < ROWS; row++) {
+            frequency = Math.min(frequency, counters.get(indexOf(hash, row)));
+        }
+        return frequency;
+    }
+
+    // Halve every counter; one thread does it while the others keep counting
+    private void reset() {
+        if (!resetting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (int i = 0; i < counters.length(); i++) {
+                counters.set(i, counters.get(i) >>> 1);
+            }
+            additions.set(0);
+        } finally {
+            resetting.set(false);
+        }
+    }
+
+    private int indexOf(long hash, int row) {
+        long mixed = (hash + SEEDS[row]) * 0xff51afd7ed558ccdL;
+        mixed ^= mixed >>> 32;
+        return (row << indexBits) + (int) (mixed >>> (64 - indexBits));
+    }
+
+    private static long spread(String key) {
+        long hash = key.hashCode() * 0x9e3779b97f4a7c15L;
+        return hash ^ (hash >>> 29);
+    }
+}
@@ -0,0 +1,51 @@
+package comp41720.cinequest.movieservice.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts movie details accesses so the hottest ids can be refreshed before they expire.
+ * Counts are halved on every decay() so the ranking follows recent traffic.
+ */
+@Component
+public class HotKeyTracker {
+
+    private final Map<Long, LongAdder> detailsHits = new ConcurrentHashMap<>();
+
+    @Value("${cache.prewarm.max-tracked-keys}")
+    private int maxTrackedKeys;
+
+    public void recordDetailsAccess(Long movieId) {
+        LongAdder counter = detailsHits.get(movieId);
+        if (counter == null) {
+            // Stop tracking new ids once full; decay() frees room for the next cycle
+            if (detailsHits.size() >= maxTrackedKeys) {
+                return;
+            }
+            counter = detailsHits.computeIfAbsent(movieId, id -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    public List<Long> topDetails(int limit) {
+        return detailsHits.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Long, LongAdder> e) -> e.getValue().sum()).reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    public void decay() {
+        detailsHits.entrySet().removeIf(entry -> {
+            long halved = entry.getValue().sumThenReset() / 2;
+            entry.getValue().add(halved);
+            return halved == 0;
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package comp41720.cinequest.movieservice.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subscribes MovieCache to L1 invalidations broadcast by other movie-service replicas.
+ * The listener container is managed here rather than as a bean, so it can be started in the background
+ * and retried until Redis is reachable instead of failing application startup. Until then, L1 entries
+ * simply expire after cache.local.ttl.
+ */
+@Component
+@Slf4j
+public class InvalidationSubscriber {
+
+    private static final long RETRY_DELAY_SECONDS = 10;
+
+    private final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-invalidation-subscriber");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public InvalidationSubscriber(RedisConnectionFactory connectionFactory,
+                                  MovieCache movieCache,
+                                  @Value("${cache.local.invalidation-channel}") String invalidationChannel) {
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(movieCache, new ChannelTopic(invalidationChannel));
+        container.afterPropertiesSet();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribe() {
+        executor.execute(this::tryStart);
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        executor.shutdownNow();
+        container.destroy();
+    }
+
+    private void tryStart() {
+        try {
+            container.start();
+            log.info("Subscribed to cache invalidation channel");
+        } catch (Exception ex) {
+            log.warn("Cache invalidation subscription failed, retrying in {}s: {}", RETRY_DELAY_SECONDS, ex.getMessage());
+            container.stop();
+            executor.schedule(this::tryStart, RETRY_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+}
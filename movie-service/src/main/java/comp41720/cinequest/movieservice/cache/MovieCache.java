@@ -0,0 +1,645 @@
+package comp41720.cinequest.movieservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import comp41720.cinequest.movieservice.cache.codec.CacheValueCodecs;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier movie cache: a bounded in-process L1 (Caffeine) in front of the shared Redis L2
+ * (one node, or several with keys spread by RedisShards).
+ * Writes and evictions are broadcast over Redis pub/sub so other replicas drop their stale L1 copy.
+ * Misses are coalesced: one load per key per JVM (single-flight) and, via a short Redis lease, per cluster.
+ *
+ * Values are wrapped in a CacheEntry with a soft TTL (the configured cache.ttl.*). Redis keeps the entry for
+ * an extra grace period, so past the soft TTL it can be served stale while a background refresh runs,
+ * and it stays available as a fallback when TMDB is down.
+ *
+ * Entries are stored in Redis as bytes in the format CacheValueCodecs picks for the key prefix; an entry that
+ * cannot be decoded is treated as a miss and overwritten by the next load.
+ */
+@Component
+@Slf4j
+public class MovieCache implements MessageListener {
+
+    private static final String SEPARATOR = "|";
+
+    private final RedisShards redisShards;
+    private final CacheValueCodecs codecs;
+    private final CacheMetrics metrics;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Cache<String, Object> localCache;
+    private final DistributedLease lease;
+    private final ThreadPoolTaskExecutor refreshExecutor;
+    private final CacheAdmission admission;
+    private final RedisGuard redisGuard;
+    private final CacheSchemaMigration schemaMigration;
+    private final CircuitBreaker tmdbCircuitBreaker;
+    private final SingleFlight<Object> singleFlight = new SingleFlight<>();
+
+    // Keys with a background refresh queued or running on this replica
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    // Identifies this replica so it can ignore its own invalidation messages
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Value("${cache.local.ttl}")
+    private long localTtl;
+
+    @Value("${cache.local.invalidation-channel}")
+    private String invalidationChannel;
+
+    @Value("${cache.lease.poll-interval-ms}")
+    private long leasePollIntervalMs;
+
+    @Value("${cache.stale.enabled}")
+    private boolean staleWhileRevalidate;
+
+    @Value("${cache.stale.grace}")
+    private long staleGrace;
+
+    public MovieCache(RedisShards redisShards,
+                      CacheValueCodecs codecs,
+                      CacheMetrics metrics,
+                      StringRedisTemplate stringRedisTemplate,
+                      Cache<String, Object> localMovieCache,
+                      DistributedLease lease,
+                      ThreadPoolTaskExecutor cacheRefreshExecutor,
+                      CacheAdmission admission,
+                      RedisGuard redisGuard,
+                      CacheSchemaMigration schemaMigration,
+                      CircuitBreakerRegistry circuitBreakerRegistry) {
+        this.redisShards = redisShards;
+        this.codecs = codecs;
+        this.metrics = metrics;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.localCache = localMovieCache;
+        this.lease = lease;
+        this.refreshExecutor = cacheRefreshExecutor;
+        this.admission = admission;
+        this.redisGuard = redisGuard;
+        this.schemaMigration = schemaMigration;
+        this.tmdbCircuitBreaker = circuitBreakerRegistry.circuitBreaker("tmdbService");
+    }
+
+    /**
+     * Look up a fresh value in L1, then Redis.
+     * Returns null on a miss, when the entry is past its soft TTL, or when the value is not of the expected type.
+     */
+    public <T> T get(String key, Class<T> type) {
+        CacheEntry entry = getEntry(key);
+        if (entry == null || !entry.isFresh()) {
+            return null;
+        }
+        return type.isInstance(entry.getValue()) ? type.cast(entry.getValue()) : null;
+    }
+
+    /**
+     * Look up a value regardless of its soft TTL, for serving when TMDB is unavailable.
+     */
+    public <T> T getStale(String key, Class<T> type) {
+        CacheEntry entry = getEntry(key);
+        if (entry == null) {
+            return null;
+        }
+        return type.isInstance(entry.getValue()) ? type.cast(entry.getValue()) : null;
+    }
+
+    /**
+     * Look up fresh values for many keys: L1 first, then a single Redis MGET for the rest.
+     * Missing or stale keys are absent from the returned map. Only hits are counted in metrics;
+     * callers load the rest through getOrLoad, which counts them.
+     */
+    public <T> Map<String, T> getAll(List<String> keys, Class<T> type) {
+        Map<String, T> found = new HashMap<>();
+        List<String> remoteKeys = new ArrayList<>();
+
+        // 1. In-process cache
+        for (String key : keys) {
+            if (localCache.getIfPresent(key) instanceof CacheEntry entry) {
+                collectFresh(found, key, entry, type, CacheMetrics.TIER_LOCAL);
+            } else {
+                remoteKeys.add(key);
+            }
+        }
+
+        // 2. Redis, one round trip for all remaining keys
+        if (!remoteKeys.isEmpty()) {
+            getRemoteEntries(remoteKeys).forEach((key, entry) -> {
+                promoteLocal(key, entry);
+                collectFresh(found, key, entry, type, CacheMetrics.TIER_REDIS);
+            });
+        }
+
+        return found;
+    }
+
+    /**
+     * Return the cached value for a key, or load it once and cache it for ttlSeconds.
+     * Concurrent misses for the same key share one loader call; exceptions from the loader propagate
+     * to every waiter so callers' circuit breakers still see upstream failures.
+     * With stale-while-revalidate enabled, an entry past its soft TTL is returned immediately and
+     * refreshed in the background.
+     */
+    public <T> T getOrLoad(String key, Class<T> type, long ttlSeconds, Supplier<T> loader) {
+        return getOrLoad(key, type, ttlSeconds, loader, null);
+    }
+
+    /**
+     * getOrLoad for a value stored with companions (see Companions); null for none.
+     */
+    public <T> T getOrLoad(String key, Class<T> type, long ttlSeconds, Supplier<T> loader, Companions<T> companions) {
+        admission.recordAccess(key);
+
+        String tier = CacheMetrics.TIER_LOCAL;
+        CacheEntry entry = getLocalEntry(key);
+        if (entry == null) {
+            tier = CacheMetrics.TIER_REDIS;
+            entry = getRemoteEntry(key);
+        }
+
+        if (entry != null && type.isInstance(entry.getValue())) {
+            if (entry.isFresh()) {
+                metrics.recordLookup(key, CacheMetrics.HIT, tier);
+                return type.cast(entry.getValue());
+            }
+            if (staleWhileRevalidate) {
+                metrics.recordLookup(key, CacheMetrics.STALE, tier);
+                refreshAsync(key, type, ttlSeconds, loader, companions);
+                return type.cast(entry.getValue());
+            }
+        }
+
+        metrics.recordLookup(key, CacheMetrics.MISS, CacheMetrics.TIER_NONE);
+        Object loaded = singleFlight.execute(key, () -> loadWithLease(key, type, ttlSeconds, loader, companions));
+        return type.isInstance(loaded) ? type.cast(loaded) : null;
+    }
+
+    /**
+     * Reload a key now and overwrite its entry even if it is still fresh (refresh-ahead).
+     * Skipped, returning null, when another replica holds the lease for the key.
+     */
+    public <T> T refresh(String key, Class<T> type, long ttlSeconds, Supplier<T> loader) {
+        return refresh(key, type, ttlSeconds, loader, null);
+    }
+
+    /**
+     * refresh for a value stored with companions (see Companions); null for none.
+     */
+    public <T> T refresh(String key, Class<T> type, long ttlSeconds, Supplier<T> loader, Companions<T> companions) {
+        Object loaded = singleFlight.execute(key, () -> {
+            String token = lease.tryAcquire(key);
+            if (token == null) {
+                return null;
+            }
+            try {
+                T value = loader.get();
+                if (value != null) {
+                    put(key, value, ttlSeconds, companions);
+                }
+                return value;
+            } finally {
+                lease.release(key, token);
+            }
+        });
+        return type.isInstance(loaded) ? type.cast(loaded) : null;
+    }
+
+    /**
+     * Milliseconds until the entry for a key goes stale; zero or negative when missing or already stale.
+     */
+    public long freshMillisRemaining(String key) {
+        CacheEntry entry = getEntry(key);
+        return entry == null ? 0 : entry.getFreshUntil() - System.currentTimeMillis();
+    }
+
+    /**
+     * HTTP validator for a value just returned by getOrLoad.
+     * Null when the value is not what the cache holds for the key (e.g. a fallback placeholder).
+     * Only L1 is consulted: getOrLoad leaves the entry there, and a fallback served while Redis is down
+     * must not fail on a second Redis call.
+     */
+    public CacheValidator validatorFor(String key, Object value) {
+        CacheEntry entry = getLocalEntry(key);
+        if (entry == null || value == null || (entry.getValue() != value && !value.equals(entry.getValue()))) {
+            return null;
+        }
+
+        if (entry.getEtag() == null) {
+            // Entry written before ETags existed; computed once, kept on the L1 copy
+            entry.setEtag(EntityTags.of(entry.getValue()));
+        }
+
+        long now = System.currentTimeMillis();
+        if (entry.getFreshUntil() == Long.MAX_VALUE) {
+            // Legacy entry without a known expiry: revalidate every time
+            return new CacheValidator(entry.getEtag(), 0, 0);
+        }
+        long remainingSeconds = TimeUnit.MILLISECONDS.toSeconds(entry.getFreshUntil() - now);
+        long freshSeconds = Math.max(0, remainingSeconds);
+        long hardSeconds = Math.max(0, remainingSeconds + staleGrace);
+        return new CacheValidator(entry.getEtag(), freshSeconds, hardSeconds - freshSeconds);
+    }
+
+    /**
+     * Store a value in Redis and L1, then tell other replicas to drop their L1 copy.
+     * The value is fresh for ttlSeconds (longer for popular keys) and kept for a further cache.stale.grace
+     * seconds. Values CacheAdmission turns away are not stored at all.
+     */
+    public void put(String key, Object value, long ttlSeconds) {
+        put(key, value, ttlSeconds, null);
+    }
+
+    /**
+     * put for a value stored with companions (see Companions); null for none. The companions are only stored
+     * if the value is admitted, and before it.
+     */
+    public <T> void put(String key, T value, long ttlSeconds, Companions<T> companions) {
+        long now = System.currentTimeMillis();
+        long ttl = admission.scaleTtl(key, ttlSeconds);
+        CacheEntry entry = new CacheEntry(value, now, now + TimeUnit.SECONDS.toMillis(ttl),
+                EntityTags.of(value));
+        long hardTtl = ttl + staleGrace;
+
+        byte[] encoded = codecs.encode(key, entry);
+        metrics.recordPayloadSize(key, encoded.length);
+        if (!admission.admit(key, encoded.length, now + TimeUnit.SECONDS.toMillis(hardTtl), this::evict)) {
+            log.debug("Cache admission declined key {}", key);
+            return;
+        }
+        if (companions != null) {
+            putAll(companions.of().apply(value), companions.ttlSeconds());
+        }
+        // Kept in L1 even if Redis is unavailable
+        redisGuard.run("set", () ->
+                redisShards.values(key).opsForValue().set(key, encoded, hardTtl, TimeUnit.SECONDS));
+        putLocal(key, entry, hardTtl);
+        publishInvalidation(key);
+    }
+
+    /**
+     * Store several values in one pipelined round trip per Redis shard, each fresh for ttlSeconds, and drop
+     * other replicas' L1 copies with one message. Used for the companions of an admitted value: they are not
+     * put to admission themselves, since the value cannot be served without them, but count against their
+     * class budget.
+     */
+    private void putAll(Map<String, ?> values, long ttlSeconds) {
+        if (values.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long hardTtl = ttlSeconds + staleGrace;
+
+        Map<RedisShards.Shard, Map<String, byte[]>> byShard = new LinkedHashMap<>();
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        values.forEach((key, value) -> {
+            CacheEntry entry = new CacheEntry(value, now, now + TimeUnit.SECONDS.toMillis(ttlSeconds),
+                    EntityTags.of(value));
+            byte[] encoded = codecs.encode(key, entry);
+            metrics.recordPayloadSize(key, encoded.length);
+            sizes.put(key, encoded.length);
+            byShard.computeIfAbsent(redisShards.shardFor(key), shard -> new LinkedHashMap<>()).put(key, encoded);
+            putLocal(key, entry, hardTtl);
+        });
+        admission.record(sizes, now + TimeUnit.SECONDS.toMillis(hardTtl));
+
+        // Kept in L1 even if Redis is unavailable
+        byShard.forEach((shard, encoded) -> redisGuard.run("set", () ->
+                shard.values().executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Object execute(RedisOperations operations) {
+                        encoded.forEach((key, bytes) ->
+                                operations.opsForValue().set(key, bytes, hardTtl, TimeUnit.SECONDS));
+                        return null;
+                    }
+                })));
+        publishInvalidation(values.keySet());
+    }
+
+    /**
+     * Restore an entry saved by CatalogSnapshot, unless Redis already has the key or the entry is past its
+     * hard expiry. Returns true if the entry was stored.
+     */
+    public boolean seed(String key, CacheEntry entry) {
+        long hardTtlMillis = entry.getFreshUntil() + TimeUnit.SECONDS.toMillis(staleGrace) - System.currentTimeMillis();
+        if (entry.getFreshUntil() == Long.MAX_VALUE || hardTtlMillis <= 0) {
+            return false;
+        }
+
+        byte[] encoded = codecs.encode(key, entry);
+        Boolean stored = redisGuard.call("set", () ->
+                redisShards.values(key).opsForValue().setIfAbsent(key, encoded, hardTtlMillis, TimeUnit.MILLISECONDS),
+                false);
+        if (!Boolean.TRUE.equals(stored)) {
+            return false;
+        }
+        putLocal(key, entry, TimeUnit.MILLISECONDS.toSeconds(hardTtlMillis));
+        return true;
+    }
+
+    /**
+     * The entry for a key from L1 or Redis, fresh or stale, without recording a lookup.
+     */
+    public CacheEntry peekEntry(String key) {
+        return getEntry(key);
+    }
+
+    /**
+     * Entries for many keys, fresh or stale: L1 first, then a single Redis MGET for the rest, without
+     * recording lookups. Keys with no entry are absent from the result.
+     */
+    public Map<String, CacheEntry> peekEntries(List<String> keys) {
+        Map<String, CacheEntry> found = new HashMap<>();
+        List<String> remoteKeys = new ArrayList<>();
+        for (String key : keys) {
+            CacheEntry local = getLocalEntry(key);
+            if (local != null) {
+                found.put(key, local);
+            } else {
+                remoteKeys.add(key);
+            }
+        }
+        if (remoteKeys.isEmpty()) {
+            return found;
+        }
+
+        getRemoteEntries(remoteKeys).forEach((key, entry) -> {
+            promoteLocal(key, entry);
+            found.put(key, entry);
+        });
+        return found;
+    }
+
+    /**
+     * Entries for many keys straight from Redis (one MGET per shard), fresh or stale, without touching L1
+     * or recording lookups. Keys with no entry are absent from the result.
+     */
+    public Map<String, CacheEntry> peekRemoteEntries(List<String> keys) {
+        return getRemoteEntries(keys);
+    }
+
+    /**
+     * Keys currently held in this replica's L1, i.e. the recently used ones.
+     */
+    public Set<String> localKeys() {
+        return Set.copyOf(localCache.asMap().keySet());
+    }
+
+    /**
+     * Remove a key from Redis and from the L1 of every replica.
+     */
+    public void evict(String key) {
+        redisGuard.run("delete", () -> redisShards.values(key).delete(key));
+        localCache.invalidate(key);
+        publishInvalidation(key);
+    }
+
+    /**
+     * Receive invalidation messages ("instanceId|key", or "instanceId|key1|key2|..." for a batch) published by
+     * other replicas. Cache keys never contain the separator: search queries are hashed.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(SEPARATOR);
+        if (separator < 0) {
+            return;
+        }
+
+        String origin = body.substring(0, separator);
+        if (instanceId.equals(origin)) {
+            return;
+        }
+
+        List<String> keys = List.of(body.substring(separator + 1).split(Pattern.quote(SEPARATOR)));
+        localCache.invalidateAll(keys);
+        log.debug("L1 invalidated for keys {} by replica {}", keys, origin);
+    }
+
+    private CacheEntry getEntry(String key) {
+        // 1. In-process cache, 2. Redis
+        CacheEntry local = getLocalEntry(key);
+        return local != null ? local : getRemoteEntry(key);
+    }
+
+    private CacheEntry getLocalEntry(String key) {
+        return localCache.getIfPresent(key) instanceof CacheEntry entry ? entry : null;
+    }
+
+    private CacheEntry getRemoteEntry(String key) {
+        return getRemoteEntry(key, true);
+    }
+
+    private CacheEntry getRemoteEntry(String key, boolean includePrevious) {
+        byte[] bytes = redisGuard.call("get", () -> redisShards.values(key).opsForValue().get(key), null);
+        CacheEntry entry = decode(key, bytes);
+        if (entry == null && includePrevious) {
+            // Not stored by this schema version yet: carry over what the previous version has
+            entry = schemaMigration.readPrevious(List.of(key)).get(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+
+        promoteLocal(key, entry);
+        return entry;
+    }
+
+    // MGET (one per shard), falling back to the previous schema version for the keys it misses
+    private Map<String, CacheEntry> getRemoteEntries(List<String> keys) {
+        Map<String, CacheEntry> found = new HashMap<>();
+        List<byte[]> values = redisGuard.call("mget", () -> redisShards.multiGet(keys), null);
+        if (values == null) {
+            return found;
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            CacheEntry entry = decode(keys.get(i), values.get(i));
+            if (entry != null) {
+                found.put(keys.get(i), entry);
+            } else {
+                missing.add(keys.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            found.putAll(schemaMigration.readPrevious(missing));
+        }
+        return found;
+    }
+
+    private CacheEntry decode(String key, byte[] bytes) {
+        try {
+            return codecs.decode(bytes);
+        } catch (SerializationException ex) {
+            log.warn("Unreadable cache entry for key {}, treating as a miss: {}", key, ex.getMessage());
+            return null;
+        }
+    }
+
+    private <T> void collectFresh(Map<String, T> found, String key, CacheEntry entry, Class<T> type, String tier) {
+        if (entry.isFresh() && type.isInstance(entry.getValue())) {
+            found.put(key, type.cast(entry.getValue()));
+            metrics.recordLookup(key, CacheMetrics.HIT, tier);
+            admission.recordAccess(key);
+        }
+    }
+
+    private <T> void refreshAsync(String key, Class<T> type, long ttlSeconds, Supplier<T> loader,
+                                  Companions<T> companions) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+
+        // Background refreshes run outside the caller's @CircuitBreaker, so guard them explicitly:
+        // while TMDB is down they are rejected instead of piling more calls onto it
+        Supplier<T> guardedLoader = tmdbCircuitBreaker.decorateSupplier(loader);
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    singleFlight.execute(key, () -> loadWithLease(key, type, ttlSeconds, guardedLoader, companions));
+                    log.debug("Refreshed stale cache entry {}", key);
+                } catch (Exception ex) {
+                    log.warn("Background refresh failed for key {}: {}", key, ex.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            // Queue full: forget the key so the next stale read can queue it again; the stale value is still served
+            refreshing.remove(key);
+            log.debug("Background refresh queue full, dropped refresh of {}", key);
+        }
+    }
+
+    private <T> T loadWithLease(String key, Class<T> type, long ttlSeconds, Supplier<T> loader,
+                                Companions<T> companions) {
+        String token = lease.tryAcquire(key);
+
+        if (token == null) {
+            // Another replica is already loading this key, wait for its result to land in Redis
+            T shared = awaitRemote(key, type);
+            if (shared != null) {
+                return shared;
+            }
+            log.debug("Lease for key {} ended without a result, loading locally", key);
+        }
+
+        try {
+            // Re-check: the previous lease holder may have finished between our miss and acquiring the lease
+            T cached = get(key, type);
+            if (cached != null) {
+                return cached;
+            }
+
+            T value = loader.get();
+            if (value != null) {
+                put(key, value, ttlSeconds, companions);
+            }
+            return value;
+        } finally {
+            if (token != null) {
+                lease.release(key, token);
+            }
+        }
+    }
+
+    private <T> T awaitRemote(String key, Class<T> type) {
+        long deadline = System.currentTimeMillis() + lease.getLeaseTtlMs();
+
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(leasePollIntervalMs);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+
+            // Checked before reading: the holder stores its result before releasing the lease
+            boolean held = lease.isHeld(key);
+
+            // Only the lease holder's result is of interest: read Redis directly, without the previous schema
+            // version's namespace, which was already consulted on the miss that led here
+            CacheEntry entry = getRemoteEntry(key, false);
+            if (entry != null && entry.isFresh() && type.isInstance(entry.getValue())) {
+                return type.cast(entry.getValue());
+            }
+            if (!held) {
+                // The holder finished without storing anything (e.g. TMDB returned 404), stop waiting
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private void putLocal(String key, CacheEntry entry, long ttlSeconds) {
+        putLocalMillis(key, entry, TimeUnit.SECONDS.toMillis(ttlSeconds));
+    }
+
+    // Keep an entry read from Redis in L1 for no longer than it has left there. Entries stored without an
+    // envelope have no known expiry and get the plain L1 TTL.
+    private void promoteLocal(String key, CacheEntry entry) {
+        long remainingMillis = entry.getFreshUntil() == Long.MAX_VALUE
+                ? TimeUnit.SECONDS.toMillis(localTtl)
+                : entry.getFreshUntil() + TimeUnit.SECONDS.toMillis(staleGrace) - System.currentTimeMillis();
+        putLocalMillis(key, entry, remainingMillis);
+    }
+
+    private void putLocalMillis(String key, CacheEntry entry, long ttlMillis) {
+        // Never keep an L1 copy longer than the Redis entry lives
+        long ttl = Math.min(ttlMillis, TimeUnit.SECONDS.toMillis(localTtl));
+        if (ttl <= 0) {
+            localCache.invalidate(key);
+            return;
+        }
+        localCache.policy().expireVariably().ifPresentOrElse(
+                policy -> policy.put(key, entry, ttl, TimeUnit.MILLISECONDS),
+                () -> localCache.put(key, entry));
+    }
+
+    private void publishInvalidation(String key) {
+        publishInvalidation(List.of(key));
+    }
+
+    private void publishInvalidation(Collection<String> keys) {
+        // If this fails, other replicas fall back to the L1 TTL, so a lost message only delays consistency
+        redisGuard.run("publish", () -> stringRedisTemplate.convertAndSend(invalidationChannel,
+                instanceId + SEPARATOR + String.join(SEPARATOR, keys)));
+    }
+
+    /**
+     * Values cached alongside a loaded value, such as the movies of a page, which the value cannot be served
+     * without. of derives them from the value; they are stored for ttlSeconds, only when the value is
+     * admitted, and before the value, so a reader that finds the value also finds them.
+     */
+    public record Companions<T>(Function<T, Map<String, ?>> of, long ttlSeconds) {
+    }
+}
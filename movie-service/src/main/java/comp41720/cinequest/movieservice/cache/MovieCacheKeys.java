@@ -0,0 +1,170 @@
+package comp41720.cinequest.movieservice.cache;
+
+import comp41720.cinequest.movieservice.index.TextNormalizer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Redis key layout for movie-service caches.
+ *
+ * Cached popular, details and search values live in a namespace per SCHEMA_VERSION, so a build that stores them
+ * differently never reads entries it cannot use, and the previous build's entries stay intact during a rolling
+ * deploy. Keys holding no model values (negative markers, change feed bookkeeping) are not versioned.
+ */
+public final class MovieCacheKeys {
+
+    /**
+     * Layout of cached values. Bump it (and PREVIOUS_NAMESPACE) when a change to Movie, TMDBResponse,
+     * MovieIdPage or their encoding means this build cannot use what the previous one stored, and teach
+     * CacheSchemaMigration to translate the previous version's entries.
+     * 1: no version segment, pages cached as TMDBResponse (or MovieIdPage); 2: pages always as MovieIdPage.
+     */
+    public static final int SCHEMA_VERSION = 2;
+
+    public static final String NAMESPACE = "movies:v" + SCHEMA_VERSION + ":";
+
+    // Namespace of SCHEMA_VERSION - 1, whose entries are carried over after a deploy
+    public static final String PREVIOUS_NAMESPACE = "movies:";
+
+    public static final String POPULAR_PREFIX = NAMESPACE + "popular:";
+    public static final String DETAILS_PREFIX = NAMESPACE + "details:";
+    public static final String SEARCH_PREFIX = NAMESPACE + "search:";
+    public static final String MISSING_PREFIX = "movies:missing:";
+    public static final String CHANGES_PREFIX = "movies:changes:";
+    // Budgets account for this version's keys only
+    public static final String ADMISSION_PREFIX = NAMESPACE + "admission:";
+    public static final String MIGRATION_PREFIX = NAMESPACE + "migration:";
+
+    private static final List<String> VALUE_CLASSES = List.of("popular:", "details:", "search:");
+
+    // Search key suffix of the hashed form: queryHash, then the page
+    private static final Pattern HASHED_SEARCH = Pattern.compile("[0-9a-f]{32}:\\d+");
+
+    private MovieCacheKeys() {
+    }
+
+    public static String popular(int page) {
+        return POPULAR_PREFIX + page;
+    }
+
+    public static String details(Long movieId) {
+        return DETAILS_PREFIX + movieId;
+    }
+
+    /**
+     * Cache class of a key (popular, details, search or other), used as a metrics tag.
+     */
+    public static String cacheName(String key) {
+        if (key.startsWith(POPULAR_PREFIX)) {
+            return "popular";
+        }
+        if (key.startsWith(DETAILS_PREFIX)) {
+            return "details";
+        }
+        if (key.startsWith(SEARCH_PREFIX)) {
+            return "search";
+        }
+        return "other";
+    }
+
+    // Negative cache marker: TMDB returned 404 for this id
+    public static String missing(Long movieId) {
+        return MISSING_PREFIX + movieId;
+    }
+
+    // TMDB change feed bookkeeping, per UTC day
+    public static String changesSeen(LocalDate day) {
+        return CHANGES_PREFIX + "seen:" + day;
+    }
+
+    public static String changesClosed(LocalDate day) {
+        return CHANGES_PREFIX + "closed:" + day;
+    }
+
+    // Per-class admission budget bookkeeping: stored keys by expiry, their sizes, and the byte total
+    public static String admissionIndex(String cache) {
+        return ADMISSION_PREFIX + cache;
+    }
+
+    public static String admissionSizes(String cache) {
+        return ADMISSION_PREFIX + cache + ":sizes";
+    }
+
+    public static String admissionBytes(String cache) {
+        return ADMISSION_PREFIX + cache + ":bytes";
+    }
+
+    /**
+     * The key the previous schema version stored a popular, details or search key's value under, or null for
+     * any other key.
+     */
+    public static String toPrevious(String key) {
+        return "other".equals(cacheName(key)) ? null : PREVIOUS_NAMESPACE + key.substring(NAMESPACE.length());
+    }
+
+    /**
+     * The current key for a popular, details or search key of the previous schema version, or null if the key
+     * is not one. Search keys that still hold the raw query ("search:{query}:{page}") are re-keyed through
+     * search(query, page), so they land where a lookup of that query lands now.
+     */
+    public static String fromPrevious(String key) {
+        if (key.startsWith(NAMESPACE) || !key.startsWith(PREVIOUS_NAMESPACE)) {
+            return null;
+        }
+        String rest = key.substring(PREVIOUS_NAMESPACE.length());
+        if (!rest.startsWith("search:")) {
+            return VALUE_CLASSES.stream().anyMatch(rest::startsWith) ? NAMESPACE + rest : null;
+        }
+
+        String search = rest.substring("search:".length());
+        if (HASHED_SEARCH.matcher(search).matches()) {
+            return NAMESPACE + rest;
+        }
+        // The query may itself contain ':', the page is what follows the last one
+        int pageSeparator = search.lastIndexOf(':');
+        if (pageSeparator < 0) {
+            return null;
+        }
+        String query = search.substring(0, pageSeparator);
+        String page = search.substring(pageSeparator + 1);
+        if (TextNormalizer.canonicalQuery(query).isEmpty() || !page.matches("\\d{1,9}")) {
+            return null;
+        }
+        return search(query, Integer.parseInt(page));
+    }
+
+    // Schema migration bookkeeping: scan position per Redis node, and the marker set once every node is done
+    public static String migrationCursor(String shard) {
+        return MIGRATION_PREFIX + "cursor:" + shard;
+    }
+
+    public static String migrationDone() {
+        return MIGRATION_PREFIX + "done";
+    }
+
+    /**
+     * Queries that differ only in case, accents or spacing share one key. The canonical query is hashed,
+     * so keys have a fixed length and never contain user input.
+     */
+    public static String search(String query, int page) {
+        return SEARCH_PREFIX + queryHash(TextNormalizer.canonicalQuery(query)) + ":" + page;
+    }
+
+    // First 128 bits of SHA-256, hex encoded
+    private static String queryHash(String canonicalQuery) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonicalQuery.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package comp41720.cinequest.movieservice.cache;
+
+import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.MovieIdPage;
+import comp41720.cinequest.movieservice.model.TMDBResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Popular and search pages, cached normalized: the page key holds a MovieIdPage (movie ids in result order
+ * and the paging fields), and each movie is cached once under its details key, shared by every page it
+ * appears on and by GET /api/movies/{id}. A page is hydrated with one batched lookup of its movies
+ * (L1, then one MGET per Redis shard).
+ *
+ * A loaded page that CacheAdmission admits is stored together with its movies (for the details TTL, written
+ * before the page), so a movie refreshed through any page or through its details is up to date everywhere;
+ * a page turned away stores nothing. A page whose movie has since gone (e.g. evicted by the TMDB change feed)
+ * is dropped and loaded again like any miss. Pages cached whole (TMDBResponse) by schema version 1 are split up by
+ * CacheSchemaMigration, and served as they are by the snapshot fallback.
+ */
+@Component
+@Slf4j
+public class MovieListCache {
+
+    // Stands for a cached page one of whose movies is no longer cached
+    private static final TMDBResponse INCOMPLETE = new TMDBResponse();
+
+    private final MovieCache movieCache;
+    private final PagePrefetcher pagePrefetcher;
+
+    @Value("${cache.ttl.details}")
+    private long detailsCacheTTL;
+
+    public MovieListCache(MovieCache movieCache, PagePrefetcher pagePrefetcher) {
+        this.movieCache = movieCache;
+        this.pagePrefetcher = pagePrefetcher;
+    }
+
+    /**
+     * Return the cached page for a key, or load it once and cache it (see MovieCache.getOrLoad).
+     */
+    public TMDBResponse getOrLoad(String key, long ttlSeconds, Supplier<TMDBResponse> loader) {
+        TMDBResponse response = load(key, ttlSeconds, loader);
+        if (response != INCOMPLETE) {
+            return response;
+        }
+
+        // A movie went before the page did: drop the page and load it again like any other miss, so concurrent
+        // callers here and on other replicas still share one TMDB call
+        log.debug("Cached page {} refers to a movie no longer cached, reloading it", key);
+        movieCache.evict(key);
+        response = load(key, ttlSeconds, loader);
+        if (response == INCOMPLETE) {
+            // Someone else stored the page again without its movies; let the caller's fallback answer
+            throw new IllegalStateException("Cached page " + key + " is missing movies after reloading it");
+        }
+        return response;
+    }
+
+    /**
+     * Reload a page now even if it is still fresh (see MovieCache.refresh). Null when another replica is
+     * refreshing it.
+     */
+    public TMDBResponse refresh(String key, long ttlSeconds, Supplier<TMDBResponse> loader) {
+        AtomicReference<TMDBResponse> loaded = new AtomicReference<>();
+        movieCache.refresh(key, MovieIdPage.class, ttlSeconds, pageLoader(loader, loaded), moviesOf(loaded));
+        return loaded.get();
+    }
+
+    /**
+     * Load a page into the cache in the background (see PagePrefetcher.prefetch).
+     */
+    public void prefetch(String key, long ttlSeconds, Supplier<TMDBResponse> loader) {
+        AtomicReference<TMDBResponse> loaded = new AtomicReference<>();
+        pagePrefetcher.prefetch(key, MovieIdPage.class, ttlSeconds, pageLoader(loader, loaded), moviesOf(loaded));
+    }
+
+    /**
+     * The page for a key regardless of its soft TTL, for serving when TMDB is unavailable.
+     * Null if the page or any of its movies is no longer cached.
+     */
+    public TMDBResponse getStale(String key) {
+        CacheEntry entry = movieCache.peekEntry(key);
+        return entry != null ? hydrate(entry.getValue(), this::peekMovies) : null;
+    }
+
+    /**
+     * The cached form of a page: its movie ids and paging fields.
+     */
+    public static MovieIdPage idPageOf(TMDBResponse response) {
+        List<Long> ids = response.getResults() == null ? null : response.getResults().stream()
+                .filter(movie -> movie != null && movie.getId() != null)
+                .map(Movie::getId)
+                .toList();
+        return new MovieIdPage(response.getPage(), ids, response.getTotalPages(), response.getTotalResults());
+    }
+
+    /**
+     * A page's movies by details key, in result order.
+     */
+    public static Map<String, Movie> moviesOf(TMDBResponse response) {
+        Map<String, Movie> movies = new LinkedHashMap<>();
+        if (response.getResults() != null) {
+            for (Movie movie : response.getResults()) {
+                // TMDB always sends ids; a movie without one could not be looked up again
+                if (movie != null && movie.getId() != null) {
+                    movies.put(MovieCacheKeys.details(movie.getId()), movie);
+                }
+            }
+        }
+        return movies;
+    }
+
+    /**
+     * Rebuild a page from a cached value, looking its movies up with the given batch lookup.
+     * A TMDBResponse cached before normalization is returned as is. Null if any movie is missing.
+     */
+    public TMDBResponse hydrate(Object value, Function<List<String>, Map<String, Movie>> lookup) {
+        if (value instanceof TMDBResponse response) {
+            return response;
+        }
+        if (!(value instanceof MovieIdPage page)) {
+            return null;
+        }
+
+        TMDBResponse response = new TMDBResponse();
+        response.setPage(page.getPage());
+        response.setTotalPages(page.getTotalPages());
+        response.setTotalResults(page.getTotalResults());
+        if (page.getIds() == null) {
+            return response;
+        }
+
+        List<String> keys = page.getIds().stream().map(MovieCacheKeys::details).toList();
+        Map<String, Movie> movies = lookup.apply(keys);
+        List<Movie> results = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Movie movie = movies.get(key);
+            if (movie == null) {
+                return null;
+            }
+            results.add(movie);
+        }
+        response.setResults(results);
+        return response;
+    }
+
+    /**
+     * HTTP validator for a page just returned by getOrLoad: the page entry's lifetime, and an ETag over the
+     * page's and each movie's tag, so it changes when any movie on the page does.
+     * Null when the response is not what the cache holds (e.g. a fallback placeholder). Only L1 is consulted.
+     */
+    public CacheValidator validatorFor(String key, TMDBResponse response) {
+        if (response == null || response.getResults() == null
+                || response.getResults().stream().anyMatch(movie -> movie == null || movie.getId() == null)) {
+            return null;
+        }
+        List<Long> ids = response.getResults().stream().map(Movie::getId).toList();
+
+        CacheValidator pageValidator = movieCache.validatorFor(key,
+                new MovieIdPage(response.getPage(), ids, response.getTotalPages(), response.getTotalResults()));
+        if (pageValidator == null) {
+            return null;
+        }
+
+        StringBuilder tags = new StringBuilder(pageValidator.etag());
+        for (Movie movie : response.getResults()) {
+            CacheValidator movieValidator = movieCache.validatorFor(MovieCacheKeys.details(movie.getId()), movie);
+            if (movieValidator == null) {
+                return null;
+            }
+            tags.append(':').append(movieValidator.etag());
+        }
+        return new CacheValidator(EntityTags.of(tags.toString()), pageValidator.freshSeconds(),
+                pageValidator.staleSeconds());
+    }
+
+    // The page, INCOMPLETE if it is cached without one of its movies
+    private TMDBResponse load(String key, long ttlSeconds, Supplier<TMDBResponse> loader) {
+        // The caller that loads the page returns TMDB's response as is, without looking its movies up again
+        AtomicReference<TMDBResponse> loaded = new AtomicReference<>();
+        MovieIdPage page = movieCache.getOrLoad(key, MovieIdPage.class, ttlSeconds, pageLoader(loader, loaded),
+                moviesOf(loaded));
+        if (loaded.get() != null) {
+            return loaded.get();
+        }
+        if (page == null) {
+            return null;
+        }
+        TMDBResponse hydrated = hydrate(page, this::peekMovies);
+        return hydrated != null ? hydrated : INCOMPLETE;
+    }
+
+    // Loads a page's cached form, keeping TMDB's response for the caller and for storing the page's movies
+    private static Supplier<MovieIdPage> pageLoader(Supplier<TMDBResponse> loader,
+                                                    AtomicReference<TMDBResponse> loaded) {
+        return () -> {
+            TMDBResponse response = loader.get();
+            loaded.set(response);
+            return response != null ? idPageOf(response) : null;
+        };
+    }
+
+    // The movies of the response the page was loaded from, stored only if the page is admitted
+    private MovieCache.Companions<MovieIdPage> moviesOf(AtomicReference<TMDBResponse> loaded) {
+        return new MovieCache.Companions<>(page -> loaded.get() != null ? moviesOf(loaded.get()) : Map.of(),
+                detailsCacheTTL);
+    }
+
+    private Map<String, Movie> peekMovies(List<String> keys) {
+        Map<String, Movie> movies = new LinkedHashMap<>();
+        movieCache.peekEntries(keys).forEach((key, entry) -> {
+            if (entry.getValue() instanceof Movie movie) {
+                movies.put(key, movie);
+            }
+        });
+        return movies;
+    }
+}
@@ -0,0 +1,72 @@
+package comp41720.cinequest.movieservice.cache;
+
+import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.MovieIdPage;
+import comp41720.cinequest.movieservice.model.TMDBResponse;
+
+/**
+ * Rough heap-size estimates for cached values, used to weigh entries in the local cache.
+ * Numbers are approximations of object headers, boxed fields and UTF-16 strings, not exact measurements.
+ */
+public final class MovieSizeEstimator {
+
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REFERENCE = 8;
+    private static final int BOXED_FIELD = 24;
+
+    private MovieSizeEstimator() {
+    }
+
+    public static int estimate(Object value) {
+        if (value instanceof CacheEntry entry) {
+            return OBJECT_OVERHEAD + 2 * REFERENCE + 16 + sizeOf(entry.getEtag()) + estimate(entry.getValue());
+        }
+        if (value instanceof TMDBResponse response) {
+            return estimate(response);
+        }
+        if (value instanceof Movie movie) {
+            return estimate(movie);
+        }
+        if (value instanceof MovieIdPage page) {
+            return estimate(page);
+        }
+        return OBJECT_OVERHEAD + REFERENCE;
+    }
+
+    public static int estimate(TMDBResponse response) {
+        int size = OBJECT_OVERHEAD + 4 * REFERENCE + 3 * BOXED_FIELD;
+        if (response.getResults() != null) {
+            size += OBJECT_OVERHEAD + response.getResults().size() * REFERENCE;
+            for (Movie movie : response.getResults()) {
+                size += estimate(movie);
+            }
+        }
+        return size;
+    }
+
+    public static int estimate(MovieIdPage page) {
+        int size = OBJECT_OVERHEAD + 4 * REFERENCE + 3 * BOXED_FIELD;
+        if (page.getIds() != null) {
+            size += OBJECT_OVERHEAD + page.getIds().size() * (REFERENCE + BOXED_FIELD);
+        }
+        return size;
+    }
+
+    public static int estimate(Movie movie) {
+        if (movie == null) {
+            return 0;
+        }
+        return OBJECT_OVERHEAD + 12 * REFERENCE + 6 * BOXED_FIELD
+                + sizeOf(movie.getTitle())
+                + sizeOf(movie.getOriginalTitle())
+                + sizeOf(movie.getPosterPath())
+                + sizeOf(movie.getBackdropPath())
+                + sizeOf(movie.getOverview())
+                + sizeOf(movie.getReleaseDate())
+                + sizeOf(movie.getOriginalLanguage());
+    }
+
+    private static int sizeOf(String value) {
+        return value == null ? 0 : 40 + value.length() * 2;
+    }
+}
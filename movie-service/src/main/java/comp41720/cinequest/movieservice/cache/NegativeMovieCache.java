@@ -0,0 +1,94 @@
+package comp41720.cinequest.movieservice.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers movie ids TMDB answered 404 for, so repeated requests for them (deleted movies, bots walking ids)
+ * do not reach TMDB again until the negative TTL has passed.
+ *
+ * Each replica keeps a bitset of known-missing ids, in two generations rotated every TTL, so a bad id is
+ * rejected in-process for between one and two TTLs without per-entry bookkeeping. Redis holds a short-lived
+ * marker per id so other replicas learn about it on their next miss instead of calling TMDB themselves.
+ */
+@Component
+public class NegativeMovieCache {
+
+    private final RedisShards redisShards;
+    private final RedisGuard redisGuard;
+
+    @Value("${cache.negative.ttl}")
+    private long negativeTtl;
+
+    @Value("${cache.negative.max-local-id}")
+    private int maxLocalId;
+
+    private BitSet current = new BitSet();
+    private BitSet previous = new BitSet();
+    private long generationStartedAt = System.currentTimeMillis();
+
+    public NegativeMovieCache(RedisShards redisShards, RedisGuard redisGuard) {
+        this.redisShards = redisShards;
+        this.redisGuard = redisGuard;
+    }
+
+    /**
+     * True if the id is invalid or this replica recently saw TMDB return 404 for it. Never leaves the JVM.
+     */
+    public boolean isKnownMissing(Long movieId) {
+        if (movieId == null || movieId <= 0) {
+            return true;
+        }
+        if (movieId > maxLocalId) {
+            return false;
+        }
+
+        int id = movieId.intValue();
+        synchronized (this) {
+            rotateIfDue();
+            return current.get(id) || previous.get(id);
+        }
+    }
+
+    /**
+     * Check the shared Redis marker, on a cache miss before calling TMDB. A hit is copied into the local filter.
+     */
+    public boolean isMissingInRedis(Long movieId) {
+        String key = MovieCacheKeys.missing(movieId);
+        if (Boolean.TRUE.equals(redisGuard.call("get", () -> redisShards.strings(key).hasKey(key), false))) {
+            markLocal(movieId);
+            return true;
+        }
+        return false;
+    }
+
+    public void recordMissing(Long movieId) {
+        markLocal(movieId);
+        String key = MovieCacheKeys.missing(movieId);
+        redisGuard.run("set", () -> redisShards.strings(key).opsForValue().set(key, "1", negativeTtl, TimeUnit.SECONDS));
+    }
+
+    private void markLocal(Long movieId) {
+        if (movieId == null || movieId <= 0 || movieId > maxLocalId) {
+            return;
+        }
+        synchronized (this) {
+            rotateIfDue();
+            current.set(movieId.intValue());
+        }
+    }
+
+    private void rotateIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - generationStartedAt < TimeUnit.SECONDS.toMillis(negativeTtl)) {
+            return;
+        }
+        // Two TTLs without a rotation means both generations are expired
+        previous = now - generationStartedAt < 2 * TimeUnit.SECONDS.toMillis(negativeTtl) ? current : new BitSet();
+        current = new BitSet();
+        generationStartedAt = now;
+    }
+}
@@ -0,0 +1,147 @@
+package comp41720.cinequest.movieservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import comp41720.cinequest.movieservice.service.client.TMDBRequestScheduler;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Loads the page a visitor is most likely to ask for next (page N+1 after page N) into the cache in the
+ * background, so "next page" is answered from cache instead of waiting on TMDB.
+ *
+ * Prefetches run on a small bounded executor in the background TMDB lane, behind the TMDB circuit breaker;
+ * when the queue is full, or no background TMDB token is free right away, they are dropped. A prefetch never
+ * waits for a token while holding the key's single-flight slot and lease, where interactive requests for the
+ * same page would queue behind it. Every page actually fetched this way is remembered for
+ * cache.prefetch.track-seconds, and movie.cache.prefetch counts what became of it:
+ * issued, used (requested while remembered), unused (forgotten unrequested), dropped, throttled or failed.
+ * used / issued is the prefetch hit rate.
+ */
+@Component
+@Slf4j
+public class PagePrefetcher {
+
+    private final MovieCache movieCache;
+    private final CacheAdmission admission;
+    private final ThreadPoolTaskExecutor executor;
+    private final TMDBRequestScheduler requestScheduler;
+    private final CircuitBreaker tmdbCircuitBreaker;
+    private final MeterRegistry meterRegistry;
+
+    // Prefetched keys not requested yet
+    private final Cache<String, Long> prefetched;
+
+    // Keys with a prefetch queued or running on this replica
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    @Value("${cache.prefetch.enabled}")
+    private boolean enabled;
+
+    public PagePrefetcher(MovieCache movieCache,
+                          CacheAdmission admission,
+                          ThreadPoolTaskExecutor pagePrefetchExecutor,
+                          TMDBRequestScheduler requestScheduler,
+                          CircuitBreakerRegistry circuitBreakerRegistry,
+                          MeterRegistry meterRegistry,
+                          @Value("${cache.prefetch.track-seconds}") long trackSeconds) {
+        this.movieCache = movieCache;
+        this.admission = admission;
+        this.executor = pagePrefetchExecutor;
+        this.requestScheduler = requestScheduler;
+        this.tmdbCircuitBreaker = circuitBreakerRegistry.circuitBreaker("tmdbService");
+        this.meterRegistry = meterRegistry;
+        this.prefetched = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(trackSeconds))
+                .removalListener((String key, Long prefetchedAt, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        count("unused");
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Note that a key is being requested. Returns true if it was prefetched and this is its first request,
+     * in which case the caller should prefetch the page after it to keep ahead of the visitor.
+     */
+    public boolean consume(String key) {
+        if (prefetched.asMap().remove(key) == null) {
+            return false;
+        }
+        count("used");
+        return true;
+    }
+
+    /**
+     * Load a key into the cache in the background, unless it is cached already or being prefetched.
+     * companions are stored with the value as in MovieCache.getOrLoad; null for none.
+     */
+    public <T> void prefetch(String key, Class<T> type, long ttlSeconds, Supplier<T> loader,
+                             MovieCache.Companions<T> companions) {
+        // Nothing to gain while TMDB is failing, and the breaker would reject the call anyway
+        if (!enabled || tmdbCircuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+            return;
+        }
+        // A page the cache would not keep is not worth fetching ahead (e.g. the next page of a one-off search)
+        if (!admission.isFrequentEnough(key)) {
+            return;
+        }
+        if (prefetched.getIfPresent(key) != null || !pending.add(key)) {
+            return;
+        }
+
+        Supplier<T> guardedLoader = tmdbCircuitBreaker.decorateSupplier(loader);
+        try {
+            executor.execute(() -> {
+                // Token first: the loader spends it instead of waiting for one under the single-flight slot
+                if (!requestScheduler.tryAcquire()) {
+                    pending.remove(key);
+                    count("throttled");
+                    return;
+                }
+                try {
+                    // Only a real TMDB fetch counts as a prefetch; a key that was already cached costs one lookup
+                    AtomicBoolean fetched = new AtomicBoolean(false);
+                    movieCache.getOrLoad(key, type, ttlSeconds, () -> {
+                        fetched.set(true);
+                        return guardedLoader.get();
+                    }, companions);
+                    if (fetched.get()) {
+                        prefetched.put(key, System.currentTimeMillis());
+                        count("issued");
+                        log.debug("Prefetched {}", key);
+                    }
+                } catch (Exception ex) {
+                    count("failed");
+                    log.debug("Prefetch of {} failed: {}", key, ex.getMessage());
+                } finally {
+                    // Unspent when the key turned out to be cached
+                    requestScheduler.releaseUnused();
+                    pending.remove(key);
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            pending.remove(key);
+            count("dropped");
+        }
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("movie.cache.prefetch", "result", result).increment();
+    }
+}
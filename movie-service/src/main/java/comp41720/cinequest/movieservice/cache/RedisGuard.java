@@ -0,0 +1,74 @@
+package comp41720.cinequest.movieservice.cache;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs the request-path Redis calls of the movie caches behind their own circuit breaker (redisCache),
+ * separate from the tmdbService one.
+ *
+ * Redis is only a cache: when a call fails or exceeds spring.data.redis.timeout, the caller's fallback is used
+ * instead (a lookup becomes a miss and the request carries on to L1 and TMDB; a write is skipped). While the
+ * breaker is open Redis calls are skipped outright, so an outage costs nothing per request. Redis errors
+ * therefore never reach the tmdbService breaker, its retries or its fallbacks.
+ */
+@Component
+@Slf4j
+public class RedisGuard {
+
+    private final CircuitBreaker circuitBreaker;
+    private final CacheMetrics metrics;
+
+    // Calls made on each thread that fell back, skipped ones included; lets a batch job tell whether all of its
+    // own lookups were answered, whatever request threads were doing meanwhile
+    private final ThreadLocal<Long> fallbacks = ThreadLocal.withInitial(() -> 0L);
+
+    public RedisGuard(CircuitBreakerRegistry circuitBreakerRegistry, CacheMetrics metrics) {
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("redisCache");
+        this.metrics = metrics;
+    }
+
+    /**
+     * Run a timed Redis call, returning fallback if it fails or the breaker is open.
+     */
+    public <T> T call(String operation, Supplier<T> call, T fallback) {
+        try {
+            return circuitBreaker.executeSupplier(() -> metrics.timeRedis(operation, call));
+        } catch (CallNotPermittedException ex) {
+            fallbacks.set(fallbacks.get() + 1);
+            return fallback;
+        } catch (Exception ex) {
+            fallbacks.set(fallbacks.get() + 1);
+            log.warn("Redis {} failed, continuing without the shared cache: {}", operation, ex.getMessage());
+            return fallback;
+        }
+    }
+
+    /**
+     * False while the breaker is open, i.e. Redis calls are currently being skipped.
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.getState() != CircuitBreaker.State.OPEN
+                && circuitBreaker.getState() != CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    /**
+     * Number of calls made so far on the current thread that returned their fallback. A change between two
+     * reads on one thread means one of that thread's Redis calls in between was not answered.
+     */
+    public long fallbackCount() {
+        return fallbacks.get();
+    }
+
+    public void run(String operation, Runnable call) {
+        call(operation, () -> {
+            call.run();
+            return null;
+        }, null);
+    }
+}
@@ -0,0 +1,145 @@
+package comp41720.cinequest.movieservice.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes movie-service cache keys (values, leases, negative markers) to one of several Redis nodes by
+ * consistent hashing, so cache memory and throughput scale with the number of nodes.
+ *
+ * Each node is placed on a 64-bit hash ring at cache.redis.virtual-nodes points derived from its name
+ * ("host:port"); a key belongs to the first point at or after its own hash. Adding or removing one of N nodes
+ * therefore moves only about 1/N of the keys, and every replica with the same node list routes identically.
+ * With a single node every key maps to it and behaviour is the same as before sharding.
+ */
+@Slf4j
+public class RedisShards implements DisposableBean {
+
+    private final List<Shard> shards;
+    private final long[] ringHashes;
+    private final Shard[] ringShards;
+
+    public RedisShards(List<Shard> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one Redis shard is required");
+        }
+        this.shards = List.copyOf(shards);
+
+        // Ring as two parallel sorted arrays, binary-searched per key
+        int points = shards.size() * virtualNodes;
+        long[][] ring = new long[points][2];
+        int i = 0;
+        for (int s = 0; s < shards.size(); s++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                ring[i][0] = hash(shards.get(s).name() + "#" + v);
+                ring[i][1] = s;
+                i++;
+            }
+        }
+        Arrays.sort(ring, (a, b) -> Long.compare(a[0], b[0]));
+
+        this.ringHashes = new long[points];
+        this.ringShards = new Shard[points];
+        for (int p = 0; p < points; p++) {
+            ringHashes[p] = ring[p][0];
+            ringShards[p] = shards.get((int) ring[p][1]);
+        }
+
+        if (shards.size() > 1) {
+            log.info("Movie cache sharded over {} Redis nodes: {}", shards.size(),
+                    shards.stream().map(Shard::name).toList());
+        }
+    }
+
+    public Shard shardFor(String key) {
+        long hash = hash(key);
+        int index = Arrays.binarySearch(ringHashes, hash);
+        if (index < 0) {
+            // Not an exact hit: first point after the key, wrapping around the ring
+            index = -index - 1;
+            if (index == ringHashes.length) {
+                index = 0;
+            }
+        }
+        return ringShards[index];
+    }
+
+    public RedisTemplate<String, byte[]> values(String key) {
+        return shardFor(key).values();
+    }
+
+    public StringRedisTemplate strings(String key) {
+        return shardFor(key).strings();
+    }
+
+    public List<Shard> all() {
+        return shards;
+    }
+
+    /**
+     * MGET across shards: one round trip per shard holding any of the keys, results in key order.
+     */
+    public List<byte[]> multiGet(List<String> keys) {
+        Map<Shard, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            positions.computeIfAbsent(shardFor(keys.get(i)), shard -> new ArrayList<>()).add(i);
+        }
+
+        List<byte[]> results = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            results.add(null);
+        }
+
+        positions.forEach((shard, indexes) -> {
+            List<String> shardKeys = indexes.stream().map(keys::get).toList();
+            List<byte[]> values = shard.values().opsForValue().multiGet(shardKeys);
+            for (int i = 0; values != null && i < indexes.size(); i++) {
+                results.set(indexes.get(i), values.get(i));
+            }
+        });
+        return results;
+    }
+
+    @Override
+    public void destroy() {
+        for (Shard shard : shards) {
+            if (shard.ownedFactory() != null) {
+                shard.ownedFactory().destroy();
+            }
+        }
+    }
+
+    // FNV-1a over the UTF-8 bytes, then MurmurHash3's 64-bit finalizer so nearby keys spread over the ring
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * One Redis node. ownedFactory is the connection factory created for it, null for the default connection.
+     */
+    public record Shard(String name,
+                        RedisTemplate<String, byte[]> values,
+                        StringRedisTemplate strings,
+                        LettuceConnectionFactory ownedFactory) {
+    }
+}
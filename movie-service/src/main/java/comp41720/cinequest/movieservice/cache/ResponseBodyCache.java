@@ -0,0 +1,291 @@
+package comp41720.cinequest.movieservice.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Off-heap cache of serialized JSON response bodies for popular, details and search keys, so a repeat
+ * request is written straight from memory instead of being re-encoded by Jackson.
+ *
+ * Memory is a slab allocator over direct buffers: pages of cache.response.page-size-kb are carved into slots
+ * of one power-of-two size class (1KB up to cache.response.max-entry-kb), and each class evicts with CLOCK
+ * (second chance) when the cache.response.max-size-mb budget is used up. A class left with no pages, or fewer
+ * than its share, then takes back the page of another class's CLOCK victim and drops the bodies stored on it.
+ * Bodies are keyed by cache key and tagged with the cache entry's ETag, so a refreshed value is never served
+ * from an old body.
+ *
+ * Writers hold the cache lock; readers take no lock. Each slot has a seqlock-style version that is bumped when
+ * the slot is freed, and a reader that sees it change while copying discards the copy and re-serializes.
+ */
+@Component
+@Slf4j
+public class ResponseBodyCache {
+
+    private static final int MIN_SLOT_SIZE = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // Reused per request thread, so copying a body out of direct memory does not allocate
+    private final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[MIN_SLOT_SIZE]);
+
+    private final boolean enabled;
+    private final int pageSize;
+    private final int maxEntrySize;
+    private final int maxPages;
+    private final SizeClass[] sizeClasses;
+    private int pagesAllocated = 0;
+
+    public ResponseBodyCache(ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${cache.response.enabled}") boolean enabled,
+                             @Value("${cache.response.max-size-mb}") int maxSizeMb,
+                             @Value("${cache.response.page-size-kb}") int pageSizeKb,
+                             @Value("${cache.response.max-entry-kb}") int maxEntryKb) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.pageSize = pageSizeKb * 1024;
+        this.maxEntrySize = Math.min(maxEntryKb * 1024, pageSize);
+        this.maxPages = Math.max(1, maxSizeMb * 1024 / pageSizeKb);
+
+        int classes = 32 - Integer.numberOfLeadingZeros(maxEntrySize / MIN_SLOT_SIZE);
+        this.sizeClasses = new SizeClass[classes];
+        for (int i = 0; i < classes; i++) {
+            sizeClasses[i] = new SizeClass(MIN_SLOT_SIZE << i);
+        }
+
+        Gauge.builder("movie.cache.response.bytes", this, cache -> cache.usedBytes())
+                .description("Off-heap bytes allocated to cached response bodies")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("movie.cache.response.entries", entries, Map::size)
+                .description("Cached response bodies")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached body for a key if it was serialized from the value with this ETag, otherwise serialize the
+     * value now and cache it. Falls back to the plain value when caching is off or the body is too large.
+     */
+    public Object bodyFor(String key, String etag, Object value) {
+        if (!enabled) {
+            return value;
+        }
+
+        Entry entry = entries.get(key);
+        if (entry != null && entry.etag.equals(etag)) {
+            entry.referenced = true;
+            return new CachedResponseBody(this, entry, entry.version, value);
+        }
+
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException ex) {
+            log.warn("Failed to serialize response for key {}: {}", key, ex.getMessage());
+            return value;
+        }
+
+        Entry stored = store(key, etag, json);
+        return stored != null ? new CachedResponseBody(this, stored, stored.version, value) : value;
+    }
+
+    /**
+     * Copy a cached body out of direct memory into this thread's scratch buffer (valid until the thread's next
+     * copy). Returns null if its slot was reused since the body was looked up.
+     */
+    byte[] copy(Entry entry, int version) {
+        byte[] buffer = scratch.get();
+        if (buffer.length < entry.length) {
+            buffer = new byte[entry.slot.capacity];
+            scratch.set(buffer);
+        }
+
+        if (entry.slot.version.get() != version) {
+            return null;
+        }
+        entry.slot.page.get(entry.slot.offset, buffer, 0, entry.length);
+        // Order the copy before the re-check, as in any seqlock read
+        VarHandle.acquireFence();
+        return entry.slot.version.get() == version ? buffer : null;
+    }
+
+    private synchronized Entry store(String key, String etag, byte[] json) {
+        if (json.length > maxEntrySize) {
+            return null;
+        }
+
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            free(previous);
+        }
+
+        SizeClass sizeClass = sizeClasses[classIndex(json.length)];
+        Slot slot = allocate(sizeClass);
+        if (slot == null) {
+            return null;
+        }
+
+        slot.page.put(slot.offset, json, 0, json.length);
+        Entry entry = new Entry(key, etag, slot, json.length, slot.version.get());
+        sizeClass.occupied.addLast(entry);
+        entries.put(key, entry);
+        return entry;
+    }
+
+    private Slot allocate(SizeClass sizeClass) {
+        Slot slot = sizeClass.free.pollFirst();
+        if (slot != null) {
+            return slot;
+        }
+
+        // Carve a new page into slots of this class while the budget allows
+        if (pagesAllocated < maxPages) {
+            pagesAllocated++;
+            carve(sizeClass, ByteBuffer.allocateDirect(pageSize));
+            return sizeClass.free.pollFirst();
+        }
+
+        // Budget used up: a class with no pages, or fewer than its share, takes a page back from the class
+        // holding the most; otherwise it evicts one of its own bodies
+        SizeClass donor = largestClass();
+        int share = maxPages / sizeClasses.length;
+        if (donor != sizeClass && !donor.pages.isEmpty()
+                && (sizeClass.pages.isEmpty() || (sizeClass.pages.size() < share && donor.pages.size() > share))) {
+            carve(sizeClass, reclaimPage(donor));
+            return sizeClass.free.pollFirst();
+        }
+
+        Entry victim = evictOne(sizeClass);
+        return victim != null ? victim.slot : null;
+    }
+
+    private void carve(SizeClass sizeClass, ByteBuffer page) {
+        sizeClass.pages.add(page);
+        for (int offset = 0; offset + sizeClass.slotSize <= pageSize; offset += sizeClass.slotSize) {
+            sizeClass.free.addLast(new Slot(page, offset, sizeClass.slotSize));
+        }
+    }
+
+    // Take the page of the class's CLOCK victim away from it, dropping every other body stored on that page
+    private ByteBuffer reclaimPage(SizeClass sizeClass) {
+        Entry victim = evictOne(sizeClass);
+        ByteBuffer page = victim != null ? victim.slot.page : sizeClass.pages.get(0);
+        sizeClass.occupied.removeIf(entry -> {
+            if (entry.slot.page != page) {
+                return false;
+            }
+            entries.remove(entry.key, entry);
+            entry.slot.version.incrementAndGet();
+            return true;
+        });
+        sizeClass.free.removeIf(slot -> slot.page == page);
+        // Identity, not ByteBuffer.equals, which compares contents
+        sizeClass.pages.removeIf(owned -> owned == page);
+        return page;
+    }
+
+    // CLOCK: skip (and clear) recently read entries once, evict the first one not read since
+    private Entry evictOne(SizeClass sizeClass) {
+        for (int i = 0; i < 2 * sizeClass.occupied.size(); i++) {
+            Entry candidate = sizeClass.occupied.pollFirst();
+            if (candidate == null) {
+                break;
+            }
+            if (candidate.referenced) {
+                candidate.referenced = false;
+                sizeClass.occupied.addLast(candidate);
+                continue;
+            }
+            entries.remove(candidate.key, candidate);
+            candidate.slot.version.incrementAndGet();
+            return candidate;
+        }
+        return null;
+    }
+
+    private SizeClass largestClass() {
+        SizeClass largest = sizeClasses[0];
+        for (SizeClass sizeClass : sizeClasses) {
+            if (sizeClass.pages.size() > largest.pages.size()) {
+                largest = sizeClass;
+            }
+        }
+        return largest;
+    }
+
+    private void free(Entry entry) {
+        // Invalidates readers that already hold this entry
+        entry.slot.version.incrementAndGet();
+        SizeClass sizeClass = sizeClasses[classIndex(entry.slot.capacity)];
+        sizeClass.occupied.remove(entry);
+        sizeClass.free.addLast(entry.slot);
+    }
+
+    private int classIndex(int length) {
+        int index = 0;
+        while ((MIN_SLOT_SIZE << index) < length) {
+            index++;
+        }
+        return index;
+    }
+
+    private synchronized long usedBytes() {
+        return (long) pagesAllocated * pageSize;
+    }
+
+    private static final class SizeClass {
+        final int slotSize;
+        final List<ByteBuffer> pages = new ArrayList<>();
+        final ArrayDeque<Slot> free = new ArrayDeque<>();
+        final ArrayDeque<Entry> occupied = new ArrayDeque<>();
+
+        SizeClass(int slotSize) {
+            this.slotSize = slotSize;
+        }
+    }
+
+    private static final class Slot {
+        final ByteBuffer page;
+        final int offset;
+        final int capacity;
+        final AtomicInteger version = new AtomicInteger();
+
+        Slot(ByteBuffer page, int offset, int capacity) {
+            this.page = page;
+            this.offset = offset;
+            this.capacity = capacity;
+        }
+    }
+
+    static final class Entry {
+        final String key;
+        final String etag;
+        final Slot slot;
+        final int length;
+        final int version;
+        volatile boolean referenced;
+
+        Entry(String key, String etag, Slot slot, int length, int version) {
+            this.key = key;
+            this.etag = etag;
+            this.slot = slot;
+            this.length = length;
+            this.version = version;
+        }
+    }
+}
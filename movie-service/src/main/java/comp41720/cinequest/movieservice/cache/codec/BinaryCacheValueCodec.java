@@ -0,0 +1,372 @@
+package comp41720.cinequest.movieservice.cache.codec;
+
+import comp41720.cinequest.movieservice.cache.CacheEntry;
+import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.MovieIdPage;
+import comp41720.cinequest.movieservice.model.TMDBResponse;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact schema-based encoding for Movie, TMDBResponse and MovieIdPage entries.
+ *
+ * Layout: magic, version, flags, then the body (LZ4-compressed and prefixed with its original length when
+ * the LZ4 flag is set). The body is storedAt, freshUntil, the etag (since version 2), a type tag and the value.
+ * Each object starts with a bitmask of its non-null fields, followed by those fields in declaration order,
+ * so there are no field names or type hints. New fields must be appended and bump VERSION; readers treat
+ * newer versions as a miss. New value types get a new type tag, which older readers also treat as a miss.
+ */
+public class BinaryCacheValueCodec implements CacheValueCodec {
+
+    // Cannot start a JSON document, so the two formats can share keys during migration
+    public static final byte MAGIC = (byte) 0xC7;
+    static final byte VERSION = 2;
+
+    private static final int FLAG_LZ4 = 1;
+
+    private static final byte TYPE_MOVIE = 1;
+    private static final byte TYPE_RESPONSE = 2;
+    private static final byte TYPE_ID_PAGE = 3;
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    private final boolean compress;
+    private final int compressionThreshold;
+    private final LZ4Compressor compressor = LZ4.fastCompressor();
+    private final LZ4SafeDecompressor decompressor = LZ4.safeDecompressor();
+
+    /**
+     * @param compress             LZ4-compress bodies of at least compressionThreshold bytes
+     * @param compressionThreshold body size in bytes below which compression is skipped
+     */
+    public BinaryCacheValueCodec(boolean compress, int compressionThreshold) {
+        this.compress = compress;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public static boolean supports(Object value) {
+        return value instanceof Movie || value instanceof TMDBResponse || value instanceof MovieIdPage;
+    }
+
+    @Override
+    public byte[] encode(CacheEntry entry) {
+        byte[] body = encodeBody(entry);
+        int flags = 0;
+        int originalLength = body.length;
+
+        if (compress && body.length >= compressionThreshold) {
+            byte[] compressed = compressor.compress(body);
+            // Only keep the compressed form when it actually saves space
+            if (compressed.length + varIntSize(originalLength) < body.length) {
+                body = compressed;
+                flags |= FLAG_LZ4;
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 8);
+        bytes.write(MAGIC);
+        bytes.write(VERSION);
+        bytes.write(flags);
+        if ((flags & FLAG_LZ4) != 0) {
+            writeVarInt(bytes, originalLength);
+        }
+        bytes.write(body, 0, body.length);
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public CacheEntry decode(byte[] bytes) {
+        if (bytes == null || bytes.length < 3 || bytes[0] != MAGIC) {
+            throw new SerializationException("Not a binary cache entry");
+        }
+        if (bytes[1] > VERSION) {
+            throw new SerializationException("Unsupported binary cache entry version " + bytes[1]);
+        }
+
+        try {
+            ByteArrayInputStream header = new ByteArrayInputStream(bytes, 3, bytes.length - 3);
+            int flags = bytes[2];
+            byte[] body;
+            if ((flags & FLAG_LZ4) != 0) {
+                int originalLength = readVarInt(header);
+                int offset = bytes.length - header.available();
+                // LZ4 cannot expand data more than 255 times, so a larger length is corrupt, not a big entry
+                if (originalLength < 0 || originalLength > (bytes.length - offset) * 255L) {
+                    throw new SerializationException("Invalid compressed length " + originalLength);
+                }
+                body = decompressor.decompress(bytes, offset, bytes.length - offset, originalLength);
+            } else {
+                body = new byte[header.available()];
+                System.arraycopy(bytes, 3, body, 0, body.length);
+            }
+            return decodeBody(new DataInputStream(new ByteArrayInputStream(body)), bytes[1]);
+        } catch (IOException | RuntimeException ex) {
+            throw new SerializationException("Corrupt binary cache entry", ex);
+        }
+    }
+
+    private static byte[] encodeBody(CacheEntry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(entry.getStoredAt());
+            out.writeLong(entry.getFreshUntil());
+            out.writeBoolean(entry.getEtag() != null);
+            if (entry.getEtag() != null) {
+                writeString(out, entry.getEtag());
+            }
+
+            Object value = entry.getValue();
+            if (value instanceof Movie movie) {
+                out.writeByte(TYPE_MOVIE);
+                writeMovie(out, movie);
+            } else if (value instanceof TMDBResponse response) {
+                out.writeByte(TYPE_RESPONSE);
+                writeResponse(out, response);
+            } else if (value instanceof MovieIdPage page) {
+                out.writeByte(TYPE_ID_PAGE);
+                writeIdPage(out, page);
+            } else {
+                throw new SerializationException("Binary codec cannot encode " +
+                        (value == null ? "null" : value.getClass().getName()));
+            }
+        } catch (IOException ex) {
+            throw new SerializationException("Failed to encode cache entry", ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static CacheEntry decodeBody(DataInputStream in, int version) throws IOException {
+        long storedAt = in.readLong();
+        long freshUntil = in.readLong();
+        String etag = version >= 2 && in.readBoolean() ? readString(in) : null;
+        byte type = in.readByte();
+
+        Object value = switch (type) {
+            case TYPE_MOVIE -> readMovie(in);
+            case TYPE_RESPONSE -> readResponse(in);
+            case TYPE_ID_PAGE -> readIdPage(in);
+            default -> throw new SerializationException("Unknown binary cache value type " + type);
+        };
+        return new CacheEntry(value, storedAt, freshUntil, etag);
+    }
+
+    // Movie: bitmask of present fields, then the present fields in this order
+    private static void writeMovie(DataOutputStream out, Movie movie) throws IOException {
+        int mask = presence(movie.getId(), movie.getTitle(), movie.getOriginalTitle(), movie.getPosterPath(),
+                movie.getBackdropPath(), movie.getOverview(), movie.getReleaseDate(), movie.getVoteAverage(),
+                movie.getVoteCount(), movie.getAdult(), movie.getOriginalLanguage(), movie.getPopularity());
+        writeVarInt(out, mask);
+
+        if (movie.getId() != null) out.writeLong(movie.getId());
+        if (movie.getTitle() != null) writeString(out, movie.getTitle());
+        if (movie.getOriginalTitle() != null) writeString(out, movie.getOriginalTitle());
+        if (movie.getPosterPath() != null) writeString(out, movie.getPosterPath());
+        if (movie.getBackdropPath() != null) writeString(out, movie.getBackdropPath());
+        if (movie.getOverview() != null) writeString(out, movie.getOverview());
+        if (movie.getReleaseDate() != null) writeString(out, movie.getReleaseDate());
+        if (movie.getVoteAverage() != null) out.writeDouble(movie.getVoteAverage());
+        if (movie.getVoteCount() != null) writeVarInt(out, movie.getVoteCount());
+        if (movie.getAdult() != null) out.writeBoolean(movie.getAdult());
+        if (movie.getOriginalLanguage() != null) writeString(out, movie.getOriginalLanguage());
+        if (movie.getPopularity() != null) out.writeDouble(movie.getPopularity());
+    }
+
+    private static Movie readMovie(DataInputStream in) throws IOException {
+        int mask = readVarInt(in);
+        Movie movie = new Movie();
+
+        if (has(mask, 0)) movie.setId(in.readLong());
+        if (has(mask, 1)) movie.setTitle(readString(in));
+        if (has(mask, 2)) movie.setOriginalTitle(readString(in));
+        if (has(mask, 3)) movie.setPosterPath(readString(in));
+        if (has(mask, 4)) movie.setBackdropPath(readString(in));
+        if (has(mask, 5)) movie.setOverview(readString(in));
+        if (has(mask, 6)) movie.setReleaseDate(readString(in));
+        if (has(mask, 7)) movie.setVoteAverage(in.readDouble());
+        if (has(mask, 8)) movie.setVoteCount(readVarInt(in));
+        if (has(mask, 9)) movie.setAdult(in.readBoolean());
+        if (has(mask, 10)) movie.setOriginalLanguage(readString(in));
+        if (has(mask, 11)) movie.setPopularity(in.readDouble());
+        return movie;
+    }
+
+    // TMDBResponse: bitmask of present fields, then page, total pages, total results and the movie list
+    private static void writeResponse(DataOutputStream out, TMDBResponse response) throws IOException {
+        List<Movie> results = response.getResults();
+        writeVarInt(out, presence(response.getPage(), response.getTotalPages(), response.getTotalResults(), results));
+
+        if (response.getPage() != null) writeVarInt(out, response.getPage());
+        if (response.getTotalPages() != null) writeVarInt(out, response.getTotalPages());
+        if (response.getTotalResults() != null) writeVarInt(out, response.getTotalResults());
+        if (results != null) {
+            writeVarInt(out, results.size());
+            for (Movie movie : results) {
+                out.writeBoolean(movie != null);
+                if (movie != null) {
+                    writeMovie(out, movie);
+                }
+            }
+        }
+    }
+
+    private static TMDBResponse readResponse(DataInputStream in) throws IOException {
+        int mask = readVarInt(in);
+        TMDBResponse response = new TMDBResponse();
+
+        if (has(mask, 0)) response.setPage(readVarInt(in));
+        if (has(mask, 1)) response.setTotalPages(readVarInt(in));
+        if (has(mask, 2)) response.setTotalResults(readVarInt(in));
+        if (has(mask, 3)) {
+            int size = readLength(in);
+            List<Movie> results = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                results.add(in.readBoolean() ? readMovie(in) : null);
+            }
+            response.setResults(results);
+        }
+        return response;
+    }
+
+    // MovieIdPage: bitmask of present fields, then page, total pages, total results and the ids as varlongs
+    private static void writeIdPage(DataOutputStream out, MovieIdPage page) throws IOException {
+        List<Long> ids = page.getIds();
+        writeVarInt(out, presence(page.getPage(), page.getTotalPages(), page.getTotalResults(), ids));
+
+        if (page.getPage() != null) writeVarInt(out, page.getPage());
+        if (page.getTotalPages() != null) writeVarInt(out, page.getTotalPages());
+        if (page.getTotalResults() != null) writeVarInt(out, page.getTotalResults());
+        if (ids != null) {
+            writeVarInt(out, ids.size());
+            for (Long id : ids) {
+                writeVarLong(out, id);
+            }
+        }
+    }
+
+    private static MovieIdPage readIdPage(DataInputStream in) throws IOException {
+        int mask = readVarInt(in);
+        MovieIdPage page = new MovieIdPage();
+
+        if (has(mask, 0)) page.setPage(readVarInt(in));
+        if (has(mask, 1)) page.setTotalPages(readVarInt(in));
+        if (has(mask, 2)) page.setTotalResults(readVarInt(in));
+        if (has(mask, 3)) {
+            int size = readLength(in);
+            List<Long> ids = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                ids.add(readVarLong(in));
+            }
+            page.setIds(ids);
+        }
+        return page;
+    }
+
+    private static int presence(Object... fields) {
+        int mask = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    private static boolean has(int mask, int field) {
+        return (mask & (1 << field)) != 0;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] utf8 = new byte[readLength(in)];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // A string length or list size; each byte or element takes at least one byte, so it cannot exceed what is left
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0 || length > in.available()) {
+            throw new SerializationException("Invalid length " + length + " in binary cache entry");
+        }
+        return length;
+    }
+
+    // Unsigned LEB128: small counts and lengths take one byte
+    private static void writeVarInt(OutputStream out, int value) {
+        try {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        } catch (IOException ex) {
+            throw new SerializationException("Failed to encode cache entry", ex);
+        }
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new SerializationException("Truncated binary cache entry");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed varint in binary cache entry");
+    }
+
+    // Movie ids are small positive numbers, so most take three bytes instead of eight
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new SerializationException("Truncated binary cache entry");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed varint in binary cache entry");
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
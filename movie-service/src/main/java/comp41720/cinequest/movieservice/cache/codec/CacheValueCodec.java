@@ -0,0 +1,14 @@
+package comp41720.cinequest.movieservice.cache.codec;
+
+import comp41720.cinequest.movieservice.cache.CacheEntry;
+
+/**
+ * Converts cache entries to and from the bytes stored in Redis.
+ * Implementations throw SerializationException for input they cannot read.
+ */
+public interface CacheValueCodec {
+
+    byte[] encode(CacheEntry entry);
+
+    CacheEntry decode(byte[] bytes);
+}
@@ -0,0 +1,75 @@
+package comp41720.cinequest.movieservice.cache.codec;
+
+import comp41720.cinequest.movieservice.cache.CacheEntry;
+import comp41720.cinequest.movieservice.cache.MovieCacheKeys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chooses how each cache entry is written to Redis, per key prefix (cache.codec.*):
+ * json (the original format), binary, or binary-lz4.
+ * Reads detect the format from the first byte, so entries written in any format, including the
+ * original JSON ones, keep working while the configuration changes.
+ */
+@Component
+public class CacheValueCodecs {
+
+    private final JsonCacheValueCodec json = new JsonCacheValueCodec();
+    private final BinaryCacheValueCodec binary;
+    private final CacheValueCodec popularCodec;
+    private final CacheValueCodec detailsCodec;
+    private final CacheValueCodec searchCodec;
+    private final CacheValueCodec defaultCodec;
+
+    public CacheValueCodecs(@Value("${cache.codec.popular}") String popular,
+                            @Value("${cache.codec.details}") String details,
+                            @Value("${cache.codec.search}") String search,
+                            @Value("${cache.codec.default}") String defaultFormat,
+                            @Value("${cache.codec.compression-threshold}") int compressionThreshold) {
+        this.binary = new BinaryCacheValueCodec(false, compressionThreshold);
+        BinaryCacheValueCodec compressed = new BinaryCacheValueCodec(true, compressionThreshold);
+
+        this.popularCodec = resolve(popular, compressed);
+        this.detailsCodec = resolve(details, compressed);
+        this.searchCodec = resolve(search, compressed);
+        this.defaultCodec = resolve(defaultFormat, compressed);
+    }
+
+    public byte[] encode(String key, CacheEntry entry) {
+        CacheValueCodec codec = codecFor(key);
+        // Values the binary schema does not cover are stored as JSON
+        if (codec != json && !BinaryCacheValueCodec.supports(entry.getValue())) {
+            codec = json;
+        }
+        return codec.encode(entry);
+    }
+
+    public CacheEntry decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        return bytes[0] == BinaryCacheValueCodec.MAGIC ? binary.decode(bytes) : json.decode(bytes);
+    }
+
+    private CacheValueCodec codecFor(String key) {
+        if (key.startsWith(MovieCacheKeys.POPULAR_PREFIX)) {
+            return popularCodec;
+        }
+        if (key.startsWith(MovieCacheKeys.DETAILS_PREFIX)) {
+            return detailsCodec;
+        }
+        if (key.startsWith(MovieCacheKeys.SEARCH_PREFIX)) {
+            return searchCodec;
+        }
+        return defaultCodec;
+    }
+
+    private CacheValueCodec resolve(String format, BinaryCacheValueCodec compressed) {
+        return switch (format) {
+            case "json" -> json;
+            case "binary" -> binary;
+            case "binary-lz4" -> compressed;
+            default -> throw new IllegalArgumentException("Unknown cache codec: " + format);
+        };
+    }
+}
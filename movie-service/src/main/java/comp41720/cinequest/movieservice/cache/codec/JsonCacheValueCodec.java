@@ -0,0 +1,27 @@
+package comp41720.cinequest.movieservice.cache.codec;
+
+import comp41720.cinequest.movieservice.cache.CacheEntry;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+/**
+ * The original Redis format: Jackson JSON with @class type hints.
+ * Also reads values written before entries had a CacheEntry envelope.
+ */
+public class JsonCacheValueCodec implements CacheValueCodec {
+
+    private final GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+
+    @Override
+    public byte[] encode(CacheEntry entry) {
+        return serializer.serialize(entry);
+    }
+
+    @Override
+    public CacheEntry decode(byte[] bytes) {
+        Object value = serializer.deserialize(bytes);
+        if (value == null) {
+            return null;
+        }
+        return value instanceof CacheEntry entry ? entry : CacheEntry.legacy(value);
+    }
+}
@@ -0,0 +1,68 @@
+package comp41720.cinequest.movieservice.config;
+
+import comp41720.cinequest.movieservice.service.client.RequestLane;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Background cache refreshes (stale-while-revalidate).
+     * Bounded queue; when full the refresh is rejected (AbortPolicy, the default) and dropped by MovieCache,
+     * so the next stale read tries again.
+     * Runs in the background TMDB request lane, behind user requests.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor cacheRefreshExecutor(
+            @Value("${cache.stale.refresh-threads}") int threads,
+            @Value("${cache.stale.refresh-queue}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("cache-refresh-");
+        executor.setTaskDecorator(RequestLane::background);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Next-page prefetches. Small on purpose: a prefetch is a guess, and it shares the TMDB rate limit with
+     * everything else. Runs in the background lane; when the queue is full the prefetch is dropped.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor pagePrefetchExecutor(
+            @Value("${cache.prefetch.threads}") int threads,
+            @Value("${cache.prefetch.queue}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("page-prefetch-");
+        executor.setTaskDecorator(RequestLane::background);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * TMDB fetches for batch details requests. The pool size caps concurrent upstream calls across all
+     * batch requests; when saturated the request thread runs the fetch itself instead of queueing more.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor batchFetchExecutor(
+            @Value("${cache.batch.fetch-threads}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 4);
+        executor.setThreadNamePrefix("batch-fetch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,51 @@
+package comp41720.cinequest.movieservice.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import comp41720.cinequest.movieservice.cache.MovieSizeEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class LocalCacheConfig {
+
+    @Value("${cache.local.max-size-mb}")
+    private long maxSizeMb;
+
+    @Value("${cache.local.ttl}")
+    private long localTtl;
+
+    /**
+     * In-process L1 cache in front of Redis.
+     * Bounded by estimated heap size rather than entry count, since a popular page is ~20x a single movie.
+     */
+    @Bean
+    public Cache<String, Object> localMovieCache() {
+        long defaultTtlNanos = TimeUnit.SECONDS.toNanos(localTtl);
+
+        return Caffeine.newBuilder()
+                .maximumWeight(maxSizeMb * 1024 * 1024)
+                .weigher((String key, Object value) -> MovieSizeEstimator.estimate(value))
+                .expireAfter(new Expiry<String, Object>() {
+                    @Override
+                    public long expireAfterCreate(String key, Object value, long currentTime) {
+                        return defaultTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Object value, long currentTime, long currentDuration) {
+                        return defaultTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Object value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+}
@@ -1,12 +1,23 @@
 package comp41720.cinequest.movieservice.config;
 
+import comp41720.cinequest.movieservice.cache.RedisShards;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RedisConfig {
 
@@ -26,4 +37,58 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
-}
\ No newline at end of file
+
+    @Bean
+    public RedisTemplate<String, byte[]> cacheValueRedisTemplate(RedisConnectionFactory connectionFactory) {
+        return byteValueTemplate(connectionFactory);
+    }
+
+    /**
+     * Redis nodes holding movie cache keys. With cache.redis.shards empty every key goes to the default
+     * connection (MOVIE_REDIS_HOST); otherwise keys are spread over the listed host:port nodes by consistent
+     * hashing. Pub/sub invalidation always uses the default connection.
+     */
+    @Bean
+    public RedisShards redisShards(RedisTemplate<String, byte[]> cacheValueRedisTemplate,
+                                   StringRedisTemplate stringRedisTemplate,
+                                   @Value("${cache.redis.shards}") List<String> addresses,
+                                   @Value("${cache.redis.virtual-nodes}") int virtualNodes,
+                                   @Value("${spring.data.redis.timeout}") Duration timeout) {
+        List<RedisShards.Shard> shards = new ArrayList<>();
+        for (String address : addresses) {
+            if (address.isBlank()) {
+                continue;
+            }
+            String[] hostAndPort = address.trim().split(":");
+            RedisStandaloneConfiguration node = new RedisStandaloneConfiguration(
+                    hostAndPort[0], hostAndPort.length > 1 ? Integer.parseInt(hostAndPort[1]) : 6379);
+            LettuceConnectionFactory factory = new LettuceConnectionFactory(node,
+                    LettuceClientConfiguration.builder().commandTimeout(timeout).build());
+            factory.afterPropertiesSet();
+            factory.start();
+
+            shards.add(new RedisShards.Shard(address.trim(), byteValueTemplate(factory),
+                    new StringRedisTemplate(factory), factory));
+        }
+
+        if (shards.isEmpty()) {
+            shards.add(new RedisShards.Shard("default", cacheValueRedisTemplate, stringRedisTemplate, null));
+        }
+        return new RedisShards(shards, virtualNodes);
+    }
+
+    // Not a @Bean method: called once per shard, each call must build a new template
+    private static RedisTemplate<String, byte[]> byteValueTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+
+        // Use String serializer for key
+        template.setKeySerializer(new StringRedisSerializer());
+
+        // Raw bytes for value, encoded per key prefix by CacheValueCodecs
+        template.setValueSerializer(RedisSerializer.byteArray());
+
+        template.afterPropertiesSet();
+        return template;
+    }
+}
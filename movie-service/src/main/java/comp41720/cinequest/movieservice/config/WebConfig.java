@@ -0,0 +1,25 @@
+package comp41720.cinequest.movieservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import comp41720.cinequest.movieservice.cache.CachedResponseBodyConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    public WebConfig(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Ahead of Jackson, so pre-serialized response bodies are written as-is
+        converters.add(0, new CachedResponseBodyConverter(objectMapper));
+    }
+}
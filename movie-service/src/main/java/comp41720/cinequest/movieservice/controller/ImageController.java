@@ -0,0 +1,127 @@
+package comp41720.cinequest.movieservice.controller;
+
+import comp41720.cinequest.movieservice.image.ImageDiskCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/movies/images")
+@Slf4j
+public class ImageController {
+
+    // TMDB image paths never change content, so browsers and CDNs may keep them for a year
+    private static final String CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS)
+            .cachePublic()
+            .immutable()
+            .getHeaderValue();
+
+    private final ImageDiskCache imageDiskCache;
+
+    public ImageController(ImageDiskCache imageDiskCache) {
+        this.imageDiskCache = imageDiskCache;
+    }
+
+    /**
+     * Get a poster or backdrop image through the local disk cache, with Range support
+     * GET /api/movies/images/w500/abc123.jpg
+     */
+    @GetMapping("/{size}/{file:.+}")
+    public void getImage(@PathVariable String size,
+                         @PathVariable String file,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        if (!ImageDiskCache.isValid(size, file)) {
+            throw new IllegalArgumentException("Unknown image size or file name: " + size + "/" + file);
+        }
+
+        String etag = "\"" + size + "/" + file + "\"";
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            return;
+        }
+
+        Path path = imageDiskCache.get(size, file);
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path);
+        } catch (NoSuchFileException ex) {
+            // Evicted between lookup and open: fetch it again
+            imageDiskCache.forget(size, file);
+            path = imageDiskCache.get(size, file);
+            channel = FileChannel.open(path);
+        }
+
+        try (FileChannel image = channel) {
+            long length = image.size();
+            long start = 0;
+            long end = length;
+
+            response.setContentType(MediaTypeFactory.getMediaType(file)
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+            // Single byte ranges only; a multi-range request gets the whole image, which HTTP allows
+            List<HttpRange> ranges = parseRanges(request.getHeader(HttpHeaders.RANGE));
+            if (ranges.size() == 1 && isCurrent(request, etag)) {
+                HttpRange range = ranges.get(0);
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length) + 1;
+                if (start >= length) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + (end - 1) + "/" + length);
+            }
+            response.setContentLengthLong(end - start);
+
+            // Written from the channel opened above, not handed to Tomcat's sendfile by name: sendfile opens the
+            // file after this method returns, when LRU eviction may already have deleted it. An eviction now only
+            // unlinks the file, and the open channel still reads the whole image.
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                position += image.transferTo(position, end - position, out);
+            }
+        }
+    }
+
+    private List<HttpRange> parseRanges(String header) {
+        try {
+            return HttpRange.parseRanges(header);
+        } catch (IllegalArgumentException ex) {
+            // Malformed Range header: ignore it and send the whole image
+            return List.of();
+        }
+    }
+
+    // If-Range: only honour the range when the client's copy is the one we would send
+    private boolean isCurrent(HttpServletRequest request, String etag) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || ifRange.equals(etag);
+    }
+}
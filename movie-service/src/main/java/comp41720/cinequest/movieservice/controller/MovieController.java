@@ -1,21 +1,49 @@
 package comp41720.cinequest.movieservice.controller;
 
+import comp41720.cinequest.movieservice.cache.CacheValidator;
+import comp41720.cinequest.movieservice.cache.MovieCache;
+import comp41720.cinequest.movieservice.cache.MovieCacheKeys;
+import comp41720.cinequest.movieservice.cache.MovieListCache;
+import comp41720.cinequest.movieservice.cache.ResponseBodyCache;
+import comp41720.cinequest.movieservice.index.MovieCatalogIndex;
+import comp41720.cinequest.movieservice.index.TitleSuggestIndex;
 import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.MovieSuggestion;
 import comp41720.cinequest.movieservice.model.TMDBResponse;
+import comp41720.cinequest.movieservice.service.MovieBatchService;
 import comp41720.cinequest.movieservice.service.TMDBService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @RestController
 @RequestMapping("/api/movies")
 @Slf4j
 public class MovieController {
 
     private final TMDBService tmdbService;
+    private final MovieBatchService movieBatchService;
+    private final TitleSuggestIndex titleSuggestIndex;
+    private final MovieCatalogIndex movieCatalogIndex;
+    private final MovieCache movieCache;
+    private final MovieListCache movieListCache;
+    private final ResponseBodyCache responseBodyCache;
 
-    public MovieController(TMDBService tmdbService) {
+    public MovieController(TMDBService tmdbService, MovieBatchService movieBatchService,
+                           TitleSuggestIndex titleSuggestIndex, MovieCatalogIndex movieCatalogIndex,
+                           MovieCache movieCache, MovieListCache movieListCache,
+                           ResponseBodyCache responseBodyCache) {
         this.tmdbService = tmdbService;
+        this.movieBatchService = movieBatchService;
+        this.titleSuggestIndex = titleSuggestIndex;
+        this.movieCatalogIndex = movieCatalogIndex;
+        this.movieCache = movieCache;
+        this.movieListCache = movieListCache;
+        this.responseBodyCache = responseBodyCache;
     }
 
     /**
@@ -23,13 +51,57 @@ public class MovieController {
      * GET /api/movies/popular?page=1
      */
     @GetMapping("/popular")
-    public ResponseEntity<TMDBResponse> getPopularMovies(
+    public ResponseEntity<?> getPopularMovies(
             @RequestParam(defaultValue = "1") int page
     ) {
-        log.info("Request received: GET /api/movies/popular?page={}", page);
+        log.debug("Request received: GET /api/movies/popular?page={}", page);
         TMDBResponse response = tmdbService.getPopularMovies(page);
-        log.info("Returning {} movies", response.getResults() != null ? response.getResults().size() : 0);
-        return ResponseEntity.ok(response);
+        log.debug("Returning {} movies", response.getResults() != null ? response.getResults().size() : 0);
+        String cacheKey = MovieCacheKeys.popular(page);
+        return cacheable(cacheKey, response, movieListCache.validatorFor(cacheKey, response));
+    }
+
+    /**
+     * Get details for several movies in one call, in request order
+     * GET /api/movies/batch?ids=550,680,13
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<List<Movie>> getMoviesBatch(@RequestParam List<Long> ids) {
+        log.debug("Request received: GET /api/movies/batch with {} ids", ids.size());
+        List<Movie> movies = movieBatchService.getMovieDetails(ids);
+        return ResponseEntity.ok(movies);
+    }
+
+    /**
+     * Suggest titles while the user types, from movies already seen (no TMDB call)
+     * GET /api/movies/suggest?prefix=matr&limit=10
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<MovieSuggestion>> suggestTitles(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        log.debug("Request received: GET /api/movies/suggest?prefix={}", prefix);
+        return ResponseEntity.ok(titleSuggestIndex.suggest(prefix, limit));
+    }
+
+    /**
+     * Sort and filter movies already seen, one page per call (no TMDB call)
+     * GET /api/movies/discover?sort=vote_average.desc&minVotes=100&language=en&from=2000&to=2009&page=1
+     */
+    @GetMapping("/discover")
+    public ResponseEntity<TMDBResponse> discoverMovies(
+            @RequestParam(defaultValue = "popularity.desc") String sort,
+            @RequestParam(required = false) Double minRating,
+            @RequestParam(required = false) Integer minVotes,
+            @RequestParam(required = false) String language,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        log.debug("Request received: GET /api/movies/discover?sort={}&page={}", sort, page);
+        return ResponseEntity.ok(movieCatalogIndex.discover(sort, minRating, minVotes, language, from, to, page, size));
     }
 
     /**
@@ -37,11 +109,12 @@ public class MovieController {
      * GET /api/movies/{id}
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Movie> getMovieDetails(@PathVariable Long id) {
-        log.info("Request received: GET /api/movies/{}", id);
+    public ResponseEntity<?> getMovieDetails(@PathVariable Long id) {
+        log.debug("Request received: GET /api/movies/{}", id);
         Movie movie = tmdbService.getMovieDetails(id);
-        log.info("Returning movie: {}", movie != null ? movie.getTitle() : "null");
-        return ResponseEntity.ok(movie);
+        log.debug("Returning movie: {}", movie != null ? movie.getTitle() : "null");
+        String cacheKey = MovieCacheKeys.details(id);
+        return cacheable(cacheKey, movie, movieCache.validatorFor(cacheKey, movie));
     }
 
     /**
@@ -49,14 +122,15 @@ public class MovieController {
      * GET /api/movies/search?q=batman&page=1
      */
     @GetMapping("/search")
-    public ResponseEntity<TMDBResponse> searchMovies(
+    public ResponseEntity<?> searchMovies(
             @RequestParam String q,
             @RequestParam(defaultValue = "1") int page
     ) {
-        log.info("Request received: GET /api/movies/search?q={}&page={}", q, page);
+        log.debug("Request received: GET /api/movies/search?q={}&page={}", q, page);
         TMDBResponse response = tmdbService.searchMovies(q, page);
-        log.info("Returning {} search results", response.getResults() != null ? response.getResults().size() : 0);
-        return ResponseEntity.ok(response);
+        log.debug("Returning {} search results", response.getResults() != null ? response.getResults().size() : 0);
+        String cacheKey = MovieCacheKeys.search(q, page);
+        return cacheable(cacheKey, response, movieListCache.validatorFor(cacheKey, response));
     }
 
     /**
@@ -68,4 +142,24 @@ public class MovieController {
         log.info("Health check");
         return ResponseEntity.ok("Movie Service is running! 🎬");
     }
-}
\ No newline at end of file
+
+    /**
+     * Attach the cache entry's ETag and remaining lifetime to a response. Spring answers a matching
+     * If-None-Match with 304 before the body is serialized; otherwise the body is written from the
+     * pre-serialized copy in ResponseBodyCache.
+     * Responses that did not come from the cache (fallbacks, local index results) have no validator.
+     */
+    private ResponseEntity<?> cacheable(String cacheKey, Object body, CacheValidator validator) {
+        if (validator == null) {
+            return ResponseEntity.ok(body);
+        }
+
+        CacheControl cacheControl = CacheControl.maxAge(validator.freshSeconds(), TimeUnit.SECONDS)
+                .staleWhileRevalidate(validator.staleSeconds(), TimeUnit.SECONDS)
+                .cachePublic();
+        return ResponseEntity.ok()
+                .eTag(validator.etag())
+                .cacheControl(cacheControl)
+                .body(responseBodyCache.bodyFor(cacheKey, validator.etag(), body));
+    }
+}
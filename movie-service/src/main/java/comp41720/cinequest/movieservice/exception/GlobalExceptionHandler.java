@@ -1,6 +1,7 @@
 package comp41720.cinequest.movieservice.exception;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -61,6 +62,53 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
     }
 
+    /**
+     * Handle unknown movie ids
+     */
+    @ExceptionHandler(MovieNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleMovieNotFound(MovieNotFoundException ex) {
+        log.warn("⚠️ Movie Not Found: {}", ex.getMovieId());
+
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", "Not Found");
+        error.put("message", ex.getMessage());
+        error.put("status", HttpStatus.NOT_FOUND.value());
+
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+    }
+
+    /**
+     * Handle TMDB requests shed by the local rate limiter
+     */
+    @ExceptionHandler(UpstreamThrottledException.class)
+    public ResponseEntity<Map<String, Object>> handleThrottled(UpstreamThrottledException ex) {
+        log.warn("⚠️ Upstream Throttled: {}", ex.getMessage());
+
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", "Service Busy");
+        error.put("message", "Too many requests to TMDB, please retry shortly");
+        error.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(error);
+    }
+
+    /**
+     * Handle invalid request parameters
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleBadRequest(IllegalArgumentException ex) {
+        log.warn("⚠️ Bad Request: {}", ex.getMessage());
+
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", "Bad Request");
+        error.put("message", ex.getMessage());
+        error.put("status", HttpStatus.BAD_REQUEST.value());
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
     /**
      * Handle all other exceptions
      */
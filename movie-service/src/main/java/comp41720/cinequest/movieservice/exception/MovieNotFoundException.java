@@ -0,0 +1,19 @@
+package comp41720.cinequest.movieservice.exception;
+
+/**
+ * TMDB has no movie with this id, or the id can never be valid.
+ * Not an upstream failure: it is excluded from the tmdbService circuit breaker and retry.
+ */
+public class MovieNotFoundException extends RuntimeException {
+
+    private final Long movieId;
+
+    public MovieNotFoundException(Long movieId) {
+        super("Movie not found: " + movieId);
+        this.movieId = movieId;
+    }
+
+    public Long getMovieId() {
+        return movieId;
+    }
+}
@@ -0,0 +1,19 @@
+package comp41720.cinequest.movieservice.exception;
+
+/**
+ * A TMDB request was shed by the local rate limiter instead of being sent.
+ * Not an upstream failure: it is excluded from the tmdbService circuit breaker and retry.
+ */
+public class UpstreamThrottledException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public UpstreamThrottledException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
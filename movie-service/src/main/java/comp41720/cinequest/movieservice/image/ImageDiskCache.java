@@ -0,0 +1,202 @@
+package comp41720.cinequest.movieservice.image;
+
+import comp41720.cinequest.movieservice.cache.SingleFlight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Size-bounded LRU cache of TMDB poster and backdrop images on local disk, under cache.images.dir/{size}/{file}.
+ *
+ * An image is fetched from tmdb.api.image-base-url the first time it is asked for and kept until the
+ * cache.images.max-size-mb budget pushes it out; TMDB image paths are content-addressed, so a cached file never
+ * goes stale. Concurrent requests for an image that is not cached yet share one download.
+ * Files already on disk at startup are indexed (oldest first), so the cache survives restarts.
+ */
+@Component
+@Slf4j
+public class ImageDiskCache {
+
+    // TMDB's published image sizes
+    private static final Set<String> SIZES = Set.of(
+            "w45", "w92", "w154", "w185", "w300", "w342", "w500", "w780", "w1280", "h632", "original");
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}\\.(jpg|jpeg|png|svg|webp)");
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    private final RestTemplate restTemplate;
+    private final SingleFlight<Path> singleFlight = new SingleFlight<>();
+
+    // Cached images by "{size}/{file}" with their size in bytes, least recently used first
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes = 0;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    @Value("${tmdb.api.image-base-url}")
+    private String imageBaseUrl;
+
+    @Value("${cache.images.dir}")
+    private Path dir;
+
+    @Value("${cache.images.max-size-mb}")
+    private long maxSizeMb;
+
+    public ImageDiskCache(RestTemplate restTemplate, MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.hits = Counter.builder("movie.images.requests")
+                .description("Image proxy requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("movie.images.requests")
+                .description("Image proxy requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("movie.images.bytes", this, cache -> cache.usedBytes())
+                .description("Disk space used by cached images")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public static boolean isValid(String size, String file) {
+        return SIZES.contains(size) && FILE_NAME.matcher(file).matches();
+    }
+
+    @PostConstruct
+    public void loadIndex() throws IOException {
+        Files.createDirectories(dir);
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dir, 2)) {
+            files = walk.filter(Files::isRegularFile).toList();
+        }
+
+        // Oldest first, so the LRU order roughly survives a restart
+        List<Path> sorted = files.stream()
+                .sorted(Comparator.comparingLong(ImageDiskCache::lastModified))
+                .toList();
+        for (Path file : sorted) {
+            if (file.getFileName().toString().endsWith(PARTIAL_SUFFIX)) {
+                // Download interrupted by a shutdown
+                Files.deleteIfExists(file);
+                continue;
+            }
+            record(dir.relativize(file).toString().replace('\\', '/'), file.toFile().length());
+        }
+        log.info("Image cache {}: {} images, {} MB", dir.toAbsolutePath(), entries.size(), usedBytes() / (1024 * 1024));
+    }
+
+    /**
+     * Local path of an image, downloading it on a miss. The caller must have checked isValid.
+     * Throws the RestTemplate exception (e.g. HttpClientErrorException.NotFound) if TMDB cannot provide it.
+     */
+    public Path get(String size, String file) {
+        String key = size + "/" + file;
+        Path path = dir.resolve(size).resolve(file);
+
+        synchronized (this) {
+            if (entries.get(key) != null) {
+                hits.increment();
+                return path;
+            }
+        }
+
+        misses.increment();
+        return singleFlight.execute(key, () -> download(key, path));
+    }
+
+    /**
+     * Forget an image whose file has disappeared (e.g. evicted between lookup and open).
+     */
+    public synchronized void forget(String size, String file) {
+        Long bytes = entries.remove(size + "/" + file);
+        if (bytes != null) {
+            totalBytes -= bytes;
+        }
+    }
+
+    private Path download(String key, Path path) {
+        synchronized (this) {
+            // Another request may have finished the same download just before this one started
+            if (entries.containsKey(key)) {
+                return path;
+            }
+        }
+
+        String url = imageBaseUrl + "/" + key;
+        Path partial = path.resolveSibling(path.getFileName() + "." + UUID.randomUUID() + PARTIAL_SUFFIX);
+        try {
+            Files.createDirectories(path.getParent());
+
+            // Stream straight to disk, the image is never held in memory
+            restTemplate.execute(url, HttpMethod.GET, null, response -> {
+                Files.copy(response.getBody(), partial, StandardCopyOption.REPLACE_EXISTING);
+                return null;
+            });
+            Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Cached image {}", key);
+
+            record(key, Files.size(path));
+            return path;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to cache image " + key, ex);
+        } finally {
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException ex) {
+                log.warn("Failed to delete partial image {}: {}", partial, ex.getMessage());
+            }
+        }
+    }
+
+    private synchronized void record(String key, long bytes) {
+        Long previous = entries.put(key, bytes);
+        totalBytes += bytes - (previous != null ? previous : 0);
+
+        // Evict least recently used images until back under budget, always keeping the one just added
+        long maxBytes = maxSizeMb * 1024 * 1024;
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && entries.size() > 1 && eldest.hasNext()) {
+            Map.Entry<String, Long> victim = eldest.next();
+            if (victim.getKey().equals(key)) {
+                continue;
+            }
+            eldest.remove();
+            totalBytes -= victim.getValue();
+            try {
+                Files.deleteIfExists(dir.resolve(victim.getKey()));
+            } catch (IOException ex) {
+                log.warn("Failed to delete evicted image {}: {}", victim.getKey(), ex.getMessage());
+            }
+        }
+    }
+
+    private synchronized long usedBytes() {
+        return totalBytes;
+    }
+
+    private static long lastModified(Path file) {
+        return file.toFile().lastModified();
+    }
+}
@@ -0,0 +1,273 @@
+package comp41720.cinequest.movieservice.index;
+
+import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.TMDBResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * Filter, sort and paginate every movie movie-service has served, in one call and without TMDB.
+ *
+ * Movies are kept in an immutable columnar snapshot: one primitive array per filterable or sortable field
+ * (rating, vote count, popularity, release date, language, title order), rebuilt on a schedule when new
+ * movies arrive. A query scans the columns (in parallel for large catalogs) to collect matching rows, then
+ * sorts them with a single primitive long sort: each row becomes (sortable value << 32 | row number).
+ * Rows are stored most popular first, so ties keep TMDB's popularity order.
+ */
+@Component
+@Slf4j
+public class MovieCatalogIndex implements MovieIngestListener {
+
+    public static final List<String> SORT_FIELDS = List.of(
+            "popularity", "vote_average", "vote_count", "release_date", "title");
+
+    // Below this many rows a parallel scan costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 20_000;
+
+    private final Map<Long, Movie> movies = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    private volatile Snapshot snapshot = Snapshot.build(List.of());
+
+    @Value("${search.local.max-movies}")
+    private int maxMovies;
+
+    @Value("${search.catalog.max-page-size}")
+    private int maxPageSize;
+
+    @Override
+    public void ingest(Collection<Movie> batch) {
+        for (Movie movie : batch) {
+            if (movie == null || movie.getId() == null || movie.getTitle() == null) {
+                continue;
+            }
+            Movie existing = movies.get(movie.getId());
+            if (Objects.equals(existing, movie) || (existing == null && movies.size() >= maxMovies)) {
+                continue;
+            }
+            movies.put(movie.getId(), movie);
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * One page of cached movies matching the filters, ordered by sort ("field.asc" or "field.desc").
+     * Null filters match everything; release dates may be a year ("2010") or a full date ("2010-07-16").
+     * Movies without a value for the sort field come last in either direction.
+     */
+    public TMDBResponse discover(String sort, Double minRating, Integer minVotes, String language,
+                                 String releasedFrom, String releasedTo, int page, int pageSize) {
+        String[] sortParts = sort.split("\\.");
+        if (sortParts.length != 2 || !SORT_FIELDS.contains(sortParts[0])
+                || !(sortParts[1].equals("asc") || sortParts[1].equals("desc"))) {
+            throw new IllegalArgumentException("sort must be one of " + SORT_FIELDS + " followed by .asc or .desc");
+        }
+        if (page < 1) {
+            throw new IllegalArgumentException("page must be at least 1");
+        }
+        int size = Math.min(Math.max(pageSize, 1), maxPageSize);
+
+        Snapshot current = snapshot;
+        float ratingFloor = minRating == null ? Float.NEGATIVE_INFINITY : minRating.floatValue();
+        int votesFloor = minVotes == null ? Integer.MIN_VALUE : minVotes;
+        int dateFrom = releasedFrom == null ? Integer.MIN_VALUE : boundKey(releasedFrom, false);
+        int dateTo = releasedTo == null ? Integer.MAX_VALUE : boundKey(releasedTo, true);
+        int languageCode = language == null ? -1 : current.languageCodes.getOrDefault(language.toLowerCase(), -2);
+
+        // 1. Filter: scan the columns
+        IntStream rows = IntStream.range(0, current.size);
+        if (current.size >= PARALLEL_THRESHOLD) {
+            rows = rows.parallel();
+        }
+        int[] matches = rows.filter(row -> current.matches(row, ratingFloor, votesFloor, dateFrom, dateTo, languageCode))
+                .toArray();
+
+        // 2. Sort: pack (value, row) into longs and sort them as primitives
+        boolean descending = sortParts[1].equals("desc");
+        long[] keys = new long[matches.length];
+        for (int i = 0; i < matches.length; i++) {
+            keys[i] = ((long) current.sortValue(sortParts[0], matches[i], descending) << 32) | matches[i];
+        }
+        if (keys.length >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(keys);
+        } else {
+            Arrays.sort(keys);
+        }
+
+        // 3. Paginate
+        int from = (page - 1) * size;
+        List<Movie> results = new ArrayList<>(size);
+        for (int i = from; i < Math.min(from + size, keys.length); i++) {
+            results.add(current.rows[(int) keys[i]]);
+        }
+
+        TMDBResponse response = new TMDBResponse();
+        response.setPage(page);
+        response.setResults(results);
+        response.setTotalResults(matches.length);
+        response.setTotalPages((matches.length + size - 1) / size);
+        return response;
+    }
+
+    @Scheduled(fixedDelayString = "${search.catalog.rebuild-interval-ms}")
+    public void rebuild() {
+        if (!dirty.compareAndSet(true, false)) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        snapshot = Snapshot.build(movies.values());
+        log.debug("Rebuilt movie catalog index: {} movies in {}ms", snapshot.size, System.currentTimeMillis() - start);
+    }
+
+    private static int boundKey(String date, boolean upperBound) {
+        int key = dateKey(date, upperBound);
+        if (key == 0) {
+            throw new IllegalArgumentException("Release dates must be yyyy or yyyy-MM-dd: " + date);
+        }
+        return key;
+    }
+
+    // "2010" -> 20100000 (or 20109999 as an upper bound), "2010-07-16" -> 20100716; unparseable -> 0
+    static int dateKey(String date, boolean upperBound) {
+        String digits = date.replace("-", "");
+        try {
+            if (digits.length() == 4) {
+                return Integer.parseInt(digits) * 10000 + (upperBound ? 9999 : 0);
+            }
+            if (digits.length() == 8) {
+                return Integer.parseInt(digits);
+            }
+        } catch (NumberFormatException ex) {
+            // Not a date
+        }
+        return 0;
+    }
+
+    private static final class Snapshot {
+
+        private static final int MISSING = Integer.MAX_VALUE;
+
+        final int size;
+        final Movie[] rows;
+        final float[] voteAverage;
+        final int[] voteCount;
+        final float[] popularity;
+        final int[] releaseDate;
+        final int[] language;
+        final int[] titleOrder;
+        final Map<String, Integer> languageCodes;
+
+        private Snapshot(int size) {
+            this.size = size;
+            this.rows = new Movie[size];
+            this.voteAverage = new float[size];
+            this.voteCount = new int[size];
+            this.popularity = new float[size];
+            this.releaseDate = new int[size];
+            this.language = new int[size];
+            this.titleOrder = new int[size];
+            this.languageCodes = new HashMap<>();
+        }
+
+        static Snapshot build(Collection<Movie> movies) {
+            List<Movie> sorted = new ArrayList<>(movies);
+            sorted.sort(Comparator.comparingDouble((Movie m) -> m.getPopularity() == null ? 0 : m.getPopularity())
+                    .reversed());
+
+            Snapshot snapshot = new Snapshot(sorted.size());
+            for (int row = 0; row < sorted.size(); row++) {
+                Movie movie = sorted.get(row);
+                snapshot.rows[row] = movie;
+                snapshot.voteAverage[row] = movie.getVoteAverage() == null ? Float.NaN : movie.getVoteAverage().floatValue();
+                snapshot.voteCount[row] = movie.getVoteCount() == null ? -1 : movie.getVoteCount();
+                snapshot.popularity[row] = movie.getPopularity() == null ? Float.NaN : movie.getPopularity().floatValue();
+                snapshot.releaseDate[row] = movie.getReleaseDate() == null || movie.getReleaseDate().isBlank()
+                        ? 0 : dateKey(movie.getReleaseDate(), false);
+                snapshot.language[row] = movie.getOriginalLanguage() == null ? -1
+                        : snapshot.languageCodes.computeIfAbsent(movie.getOriginalLanguage().toLowerCase(),
+                                code -> snapshot.languageCodes.size());
+            }
+
+            // Title sort is precomputed as each row's position in title order
+            Integer[] byTitle = new Integer[snapshot.size];
+            for (int row = 0; row < snapshot.size; row++) {
+                byTitle[row] = row;
+            }
+            Arrays.sort(byTitle, Comparator.comparing(row -> snapshot.rows[row].getTitle(), String.CASE_INSENSITIVE_ORDER));
+            for (int position = 0; position < byTitle.length; position++) {
+                snapshot.titleOrder[byTitle[position]] = position;
+            }
+            return snapshot;
+        }
+
+        boolean matches(int row, float ratingFloor, int votesFloor, int dateFrom, int dateTo, int languageCode) {
+            // NaN (no rating) fails any rating floor, as in TMDB's discover
+            if (ratingFloor != Float.NEGATIVE_INFINITY && !(voteAverage[row] >= ratingFloor)) {
+                return false;
+            }
+            if (voteCount[row] < votesFloor) {
+                return false;
+            }
+            if ((dateFrom != Integer.MIN_VALUE || dateTo != Integer.MAX_VALUE)
+                    && (releaseDate[row] == 0 || releaseDate[row] < dateFrom || releaseDate[row] > dateTo)) {
+                return false;
+            }
+            return languageCode == -1 || language[row] == languageCode;
+        }
+
+        // Signed int that orders ascending; negated for descending. Missing values sort last either way.
+        int sortValue(String field, int row, boolean descending) {
+            int value;
+            switch (field) {
+                case "vote_average" -> {
+                    if (Float.isNaN(voteAverage[row])) {
+                        return MISSING;
+                    }
+                    value = sortableFloat(voteAverage[row]);
+                }
+                case "popularity" -> {
+                    if (Float.isNaN(popularity[row])) {
+                        return MISSING;
+                    }
+                    value = sortableFloat(popularity[row]);
+                }
+                case "vote_count" -> {
+                    if (voteCount[row] < 0) {
+                        return MISSING;
+                    }
+                    value = voteCount[row];
+                }
+                case "release_date" -> {
+                    if (releaseDate[row] == 0) {
+                        return MISSING;
+                    }
+                    value = releaseDate[row];
+                }
+                default -> value = titleOrder[row];
+            }
+            // Values here are never Integer.MIN_VALUE, so negation cannot overflow into MISSING
+            return descending ? -value : value;
+        }
+
+        // Float bits reordered so that signed int comparison matches float comparison
+        private static int sortableFloat(float value) {
+            int bits = Float.floatToIntBits(value);
+            return bits ^ ((bits >> 31) & 0x7fffffff);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package comp41720.cinequest.movieservice.index;
+
+import comp41720.cinequest.movieservice.model.Movie;
+
+import java.util.Collection;
+
+/**
+ * Receives every movie TMDBService serves (popular, details and search results),
+ * so local indexes can be built from data we already have.
+ * Called on the request path: implementations must be cheap for movies they have already seen.
+ */
+public interface MovieIngestListener {
+
+    void ingest(Collection<Movie> movies);
+}
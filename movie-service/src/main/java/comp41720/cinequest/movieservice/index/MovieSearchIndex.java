@@ -0,0 +1,208 @@
+package comp41720.cinequest.movieservice.index;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.TMDBResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over every movie movie-service has served.
+ * Title, original title and overview terms are indexed with per-field weights; queries match movies
+ * containing every query term and are ranked by tf-idf, with TMDB popularity as the tie-breaker.
+ * Later pages of a query are served from the ranking computed for its page 1, so a visitor paging through
+ * results never sees them reordered by movies indexed in between, nor a mix of local and TMDB pages.
+ */
+@Component
+@Slf4j
+public class MovieSearchIndex implements MovieIngestListener {
+
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float ORIGINAL_TITLE_WEIGHT = 2.0f;
+    private static final float OVERVIEW_WEIGHT = 1.0f;
+
+    private final Map<Long, Movie> movies = new ConcurrentHashMap<>();
+
+    // term -> (movie id -> weighted term frequency)
+    private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+
+    // movie id -> terms it is posted under, so a re-ingested movie can be removed first
+    private final Map<Long, Collection<String>> movieTerms = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // canonical query -> movie ids ranked when its page 1 was answered locally
+    private final Cache<String, List<Long>> rankings;
+
+    @Value("${search.local.max-movies}")
+    private int maxMovies;
+
+    @Value("${search.local.page-size}")
+    private int pageSize;
+
+    public MovieSearchIndex(@Value("${search.local.ranking-seconds}") long rankingSeconds) {
+        this.rankings = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(rankingSeconds))
+                .build();
+    }
+
+    @Override
+    public void ingest(Collection<Movie> batch) {
+        for (Movie movie : batch) {
+            if (movie == null || movie.getId() == null || movie.getTitle() == null) {
+                continue;
+            }
+            // Cheap skip on the request path: unchanged movies are not re-indexed
+            Movie existing = movies.get(movie.getId());
+            if (Objects.equals(existing, movie) || (existing == null && movies.size() >= maxMovies)) {
+                continue;
+            }
+            index(movie);
+        }
+    }
+
+    /**
+     * Search the local index. Page 1 is answered locally when at least minResults movies match; later pages
+     * only when page 1 of the same query was answered locally and its ranking reaches the requested page.
+     * Returns null otherwise, meaning the caller should ask TMDB instead.
+     */
+    public TMDBResponse search(String query, int page, int minResults) {
+        List<String> terms = TextNormalizer.terms(query);
+        if (terms.isEmpty() || page < 1) {
+            return null;
+        }
+
+        String canonicalQuery = TextNormalizer.canonicalQuery(query);
+        List<Long> ranked;
+        if (page == 1) {
+            lock.readLock().lock();
+            try {
+                ranked = rank(terms).stream().map(Map.Entry::getKey).toList();
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (ranked.size() < minResults) {
+                // Later pages must come from TMDB too
+                rankings.invalidate(canonicalQuery);
+                return null;
+            }
+            rankings.put(canonicalQuery, ranked);
+        } else {
+            ranked = rankings.getIfPresent(canonicalQuery);
+        }
+
+        int from = (page - 1) * pageSize;
+        if (ranked == null || ranked.size() <= from) {
+            return null;
+        }
+
+        List<Movie> results = new ArrayList<>();
+        for (int i = from; i < Math.min(from + pageSize, ranked.size()); i++) {
+            results.add(movies.get(ranked.get(i)));
+        }
+
+        TMDBResponse response = new TMDBResponse();
+        response.setPage(page);
+        response.setResults(results);
+        response.setTotalResults(ranked.size());
+        response.setTotalPages((ranked.size() + pageSize - 1) / pageSize);
+        return response;
+    }
+
+    public int size() {
+        return movies.size();
+    }
+
+    private List<Map.Entry<Long, Float>> rank(List<String> terms) {
+        // Start from the rarest term so the intersection stays small
+        List<Map<Long, Float>> termPostings = new ArrayList<>();
+        for (String term : terms) {
+            Map<Long, Float> posting = postings.get(term);
+            if (posting == null) {
+                return List.of();
+            }
+            termPostings.add(posting);
+        }
+        termPostings.sort(Comparator.comparingInt(Map::size));
+
+        int documentCount = Math.max(1, movies.size());
+        Map<Long, Float> scores = new HashMap<>();
+        termPostings.get(0).forEach((movieId, tf) -> scores.put(movieId, 0f));
+
+        for (Map<Long, Float> posting : termPostings) {
+            float idf = (float) Math.log(1.0 + (double) documentCount / posting.size());
+            scores.entrySet().removeIf(entry -> {
+                Float tf = posting.get(entry.getKey());
+                if (tf == null) {
+                    return true;
+                }
+                entry.setValue(entry.getValue() + tf * idf);
+                return false;
+            });
+        }
+
+        List<Map.Entry<Long, Float>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Float>comparingByValue().reversed()
+                .thenComparing(entry -> popularity(entry.getKey()), Comparator.reverseOrder()));
+        return ranked;
+    }
+
+    private double popularity(Long movieId) {
+        Movie movie = movies.get(movieId);
+        return movie == null || movie.getPopularity() == null ? 0 : movie.getPopularity();
+    }
+
+    private void index(Movie movie) {
+        Map<String, Float> frequencies = new HashMap<>();
+        addTerms(frequencies, movie.getTitle(), TITLE_WEIGHT);
+        addTerms(frequencies, movie.getOriginalTitle(), ORIGINAL_TITLE_WEIGHT);
+        addTerms(frequencies, movie.getOverview(), OVERVIEW_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            Collection<String> previous = movieTerms.remove(movie.getId());
+            if (previous != null) {
+                for (String term : previous) {
+                    Map<Long, Float> posting = postings.get(term);
+                    if (posting != null) {
+                        posting.remove(movie.getId());
+                        if (posting.isEmpty()) {
+                            postings.remove(term);
+                        }
+                    }
+                }
+            }
+
+            frequencies.forEach((term, tf) ->
+                    postings.computeIfAbsent(term, t -> new HashMap<>()).put(movie.getId(), tf));
+            movieTerms.put(movie.getId(), new ArrayList<>(frequencies.keySet()));
+            movies.put(movie.getId(), movie);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void addTerms(Map<String, Float> frequencies, String text, float weight) {
+        if (text == null) {
+            return;
+        }
+        for (String term : TextNormalizer.terms(text)) {
+            frequencies.merge(term, weight, Float::sum);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package comp41720.cinequest.movieservice.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Shared text normalization for movie indexes and search cache keys: accent stripping, case folding and tokenization.
+ */
+public final class TextNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "as", "at", "by", "for", "from", "in", "is", "it", "of", "on", "or", "the", "to", "with");
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Fold case and strip accents: "Amélie" becomes "amelie".
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Split folded text into alphanumeric tokens, keeping stop words.
+     */
+    public static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_ALPHANUMERIC.split(fold(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Tokens without stop words. If every token is a stop word (e.g. "It"), they are all kept.
+     */
+    public static List<String> terms(String text) {
+        List<String> tokens = tokens(text);
+        List<String> terms = tokens.stream().filter(token -> !STOP_WORDS.contains(token)).toList();
+        return terms.isEmpty() ? tokens : terms;
+    }
+
+    /**
+     * One spelling per search: " The  Matrix", "the matrix" and "THE MATRIX " all become "the matrix".
+     * Only case, accents and whitespace are folded; TMDB is sent the query as typed and its results can
+     * depend on punctuation and stop words, so those are kept.
+     */
+    public static String canonicalQuery(String query) {
+        return WHITESPACE.matcher(fold(query)).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,188 @@
+package comp41720.cinequest.movieservice.index;
+
+import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.MovieSuggestion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Title autocomplete over every movie movie-service has served.
+ *
+ * Each title (and original title) is indexed from every word position, so "matr" and "the matr" both find
+ * "The Matrix". Lookups run against an immutable snapshot: a sorted array of those keys, binary searched for
+ * the prefix range and ranked by TMDB popularity. One and two character prefixes match too many keys to scan,
+ * so their top results are precomputed. New titles are picked up by the next scheduled rebuild.
+ */
+@Component
+@Slf4j
+public class TitleSuggestIndex implements MovieIngestListener {
+
+    // Prefixes up to this length have their results precomputed at rebuild time
+    private static final int SHORT_PREFIX_LENGTH = 2;
+
+    // Keys are cut to this length: nobody types further than this before picking a suggestion
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private static final Comparator<MovieSuggestion> RANKING =
+            Comparator.comparingDouble(MovieSuggestion::getPopularity).reversed()
+                    .thenComparing(suggestion -> suggestion.getTitle().length());
+
+    private final Map<Long, MovieSuggestion> suggestions = new ConcurrentHashMap<>();
+    private final Map<Long, String> originalTitles = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    @Value("${search.suggest.max-results}")
+    private int maxResults;
+
+    @Value("${search.local.max-movies}")
+    private int maxMovies;
+
+    @Override
+    public void ingest(Collection<Movie> movies) {
+        for (Movie movie : movies) {
+            if (movie == null || movie.getId() == null || movie.getTitle() == null) {
+                continue;
+            }
+
+            MovieSuggestion suggestion = new MovieSuggestion(movie.getId(), movie.getTitle(), movie.getReleaseDate(),
+                    movie.getPosterPath(), movie.getPopularity() == null ? 0 : movie.getPopularity());
+            MovieSuggestion existing = suggestions.get(movie.getId());
+            if (suggestion.equals(existing) || (existing == null && suggestions.size() >= maxMovies)) {
+                continue;
+            }
+
+            suggestions.put(movie.getId(), suggestion);
+            if (movie.getOriginalTitle() != null) {
+                originalTitles.put(movie.getId(), movie.getOriginalTitle());
+            }
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Top titles starting with the prefix at any word, most popular first. Never calls TMDB.
+     */
+    public List<MovieSuggestion> suggest(String prefix, int limit) {
+        String normalized = String.join(" ", TextNormalizer.tokens(prefix));
+        int size = Math.min(Math.max(limit, 1), maxResults);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+
+        Snapshot current = snapshot;
+        if (normalized.length() <= SHORT_PREFIX_LENGTH) {
+            List<MovieSuggestion> top = current.shortPrefixes.getOrDefault(normalized, List.of());
+            return top.subList(0, Math.min(size, top.size()));
+        }
+        return current.scan(normalized, size);
+    }
+
+    @Scheduled(fixedDelayString = "${search.suggest.rebuild-interval-ms}")
+    public void rebuild() {
+        if (!dirty.compareAndSet(true, false)) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        snapshot = Snapshot.build(suggestions, originalTitles, maxResults);
+        log.debug("Rebuilt title suggestions: {} titles, {} keys in {}ms",
+                suggestions.size(), snapshot.keys.length, System.currentTimeMillis() - start);
+    }
+
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(new String[0], new MovieSuggestion[0], Map.of());
+
+        // Sorted keys and, at the same index, the suggestion each key belongs to
+        final String[] keys;
+        final MovieSuggestion[] owners;
+        final Map<String, List<MovieSuggestion>> shortPrefixes;
+
+        Snapshot(String[] keys, MovieSuggestion[] owners, Map<String, List<MovieSuggestion>> shortPrefixes) {
+            this.keys = keys;
+            this.owners = owners;
+            this.shortPrefixes = shortPrefixes;
+        }
+
+        static Snapshot build(Map<Long, MovieSuggestion> suggestions, Map<Long, String> originalTitles, int topK) {
+            List<Map.Entry<String, MovieSuggestion>> entries = new ArrayList<>();
+            for (MovieSuggestion suggestion : suggestions.values()) {
+                Set<String> keys = new LinkedHashSet<>(wordSuffixes(suggestion.getTitle()));
+                keys.addAll(wordSuffixes(originalTitles.get(suggestion.getId())));
+                for (String key : keys) {
+                    entries.add(Map.entry(key, suggestion));
+                }
+            }
+            entries.sort(Map.Entry.comparingByKey());
+
+            String[] keys = new String[entries.size()];
+            MovieSuggestion[] owners = new MovieSuggestion[entries.size()];
+            Map<String, Set<MovieSuggestion>> candidates = new HashMap<>();
+            for (int i = 0; i < entries.size(); i++) {
+                keys[i] = entries.get(i).getKey();
+                owners[i] = entries.get(i).getValue();
+                for (int length = 1; length <= Math.min(SHORT_PREFIX_LENGTH, keys[i].length()); length++) {
+                    candidates.computeIfAbsent(keys[i].substring(0, length), p -> new HashSet<>()).add(owners[i]);
+                }
+            }
+
+            Map<String, List<MovieSuggestion>> shortPrefixes = new HashMap<>();
+            candidates.forEach((prefix, owned) -> shortPrefixes.put(prefix,
+                    owned.stream().sorted(RANKING).limit(topK).toList()));
+
+            return new Snapshot(keys, owners, shortPrefixes);
+        }
+
+        List<MovieSuggestion> scan(String prefix, int limit) {
+            int from = Arrays.binarySearch(keys, prefix);
+            if (from < 0) {
+                from = -from - 1;
+            }
+
+            // Keep the best `limit` suggestions seen so far, weakest at the head
+            PriorityQueue<MovieSuggestion> top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            Set<Long> seen = new HashSet<>();
+            for (int i = from; i < keys.length && keys[i].startsWith(prefix); i++) {
+                if (seen.add(owners[i].getId())) {
+                    top.offer(owners[i]);
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+
+            List<MovieSuggestion> ranked = new ArrayList<>(top);
+            ranked.sort(RANKING);
+            return ranked;
+        }
+
+        // "The Matrix Reloaded" -> "the matrix reloaded", "matrix reloaded", "reloaded"
+        private static List<String> wordSuffixes(String title) {
+            List<String> tokens = TextNormalizer.tokens(title);
+            List<String> suffixes = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                String suffix = String.join(" ", tokens.subList(i, tokens.size()));
+                suffixes.add(suffix.length() > MAX_KEY_LENGTH ? suffix.substring(0, MAX_KEY_LENGTH) : suffix);
+            }
+            return suffixes;
+        }
+    }
+}
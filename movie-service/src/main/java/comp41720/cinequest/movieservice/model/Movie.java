@@ -16,6 +16,9 @@ public class Movie implements Serializable {
 
     private String title;
 
+    @JsonProperty("original_title")
+    private String originalTitle;
+
     @JsonProperty("poster_path")
     private String posterPath;
 
@@ -0,0 +1,29 @@
+package comp41720.cinequest.movieservice.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of TMDB's /movie/changes feed: ids of movies edited in the requested date range.
+ */
+@Data
+public class MovieChanges implements Serializable {
+
+    private Integer page;
+
+    private List<ChangedMovie> results;
+
+    @JsonProperty("total_pages")
+    private Integer totalPages;
+
+    @Data
+    public static class ChangedMovie implements Serializable {
+
+        private Long id;
+
+        private Boolean adult;
+    }
+}
@@ -0,0 +1,26 @@
+package comp41720.cinequest.movieservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Cached form of a TMDBResponse page: the movie ids in result order and the paging fields.
+ * The movies themselves are cached once each under their details key.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieIdPage implements Serializable {
+
+    private Integer page;
+
+    private List<Long> ids;
+
+    private Integer totalPages;
+
+    private Integer totalResults;
+}
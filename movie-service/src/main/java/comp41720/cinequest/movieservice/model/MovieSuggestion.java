@@ -0,0 +1,27 @@
+package comp41720.cinequest.movieservice.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieSuggestion {
+
+    private Long id;
+
+    private String title;
+
+    @JsonProperty("release_date")
+    private String releaseDate;
+
+    @JsonProperty("poster_path")
+    private String posterPath;
+
+    // Ranking weight only, not part of the response
+    @JsonIgnore
+    private double popularity;
+}
@@ -0,0 +1,40 @@
+package comp41720.cinequest.movieservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Readiness contributor ("cacheWarmup"): OUT_OF_SERVICE until the popular pages are cached.
+ * Reports UP after cache.prewarm.ready-timeout even if warm-up failed, so a TMDB outage
+ * does not keep every replica out of the load balancer.
+ */
+@Component
+public class CacheWarmupHealthIndicator implements HealthIndicator {
+
+    private final CacheWarmupService cacheWarmupService;
+
+    @Value("${cache.prewarm.ready-timeout}")
+    private long readyTimeoutSeconds;
+
+    public CacheWarmupHealthIndicator(CacheWarmupService cacheWarmupService) {
+        this.cacheWarmupService = cacheWarmupService;
+    }
+
+    @Override
+    public Health health() {
+        if (cacheWarmupService.isWarm()) {
+            return Health.up().withDetail("warm", true).build();
+        }
+
+        long uptimeSeconds = ManagementFactory.getRuntimeMXBean().getUptime() / 1000;
+        if (uptimeSeconds >= readyTimeoutSeconds) {
+            return Health.up().withDetail("warm", false).withDetail("reason", "warm-up timed out").build();
+        }
+
+        return Health.outOfService().withDetail("warm", false).build();
+    }
+}
@@ -0,0 +1,93 @@
+package comp41720.cinequest.movieservice.service;
+
+import comp41720.cinequest.movieservice.cache.HotKeyTracker;
+import comp41720.cinequest.movieservice.cache.MovieCache;
+import comp41720.cinequest.movieservice.cache.MovieCacheKeys;
+import comp41720.cinequest.movieservice.service.client.RequestLane;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the hottest movie keys in cache so visitors never hit TMDB cold.
+ * The first run (right after startup) loads the first N popular pages; every run after that reloads
+ * popular pages and the top-K most requested movie details shortly before they go stale.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CacheWarmupService {
+
+    private final TMDBService tmdbService;
+    private final MovieCache movieCache;
+    private final HotKeyTracker hotKeyTracker;
+
+    @Value("${cache.prewarm.popular-pages}")
+    private int popularPages;
+
+    @Value("${cache.prewarm.top-details}")
+    private int topDetails;
+
+    @Value("${cache.prewarm.refresh-ahead}")
+    private long refreshAheadSeconds;
+
+    // Set once every popular page in the warm set has been loaded
+    private volatile boolean warm = false;
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${cache.prewarm.interval-ms}")
+    public void refreshHotKeys() {
+        // Warm-up is never urgent: its TMDB calls yield to user requests
+        RequestLane.runInBackground(this::refreshHotKeysInBackground);
+    }
+
+    private void refreshHotKeysInBackground() {
+        long refreshAheadMillis = TimeUnit.SECONDS.toMillis(refreshAheadSeconds);
+
+        // 1. Popular pages shown on the home page
+        int loaded = 0;
+        for (int i = 1; i <= popularPages; i++) {
+            int page = i;
+            String key = MovieCacheKeys.popular(page);
+            if (refreshIfExpiring(key, refreshAheadMillis, () -> tmdbService.refreshPopularMovies(page))) {
+                loaded++;
+            }
+        }
+
+        if (!warm && loaded == popularPages) {
+            warm = true;
+            log.info("Cache warm-up complete: {} popular pages loaded", popularPages);
+        }
+
+        // 2. Most requested movie details
+        for (Long movieId : hotKeyTracker.topDetails(topDetails)) {
+            String key = MovieCacheKeys.details(movieId);
+            refreshIfExpiring(key, refreshAheadMillis, () -> tmdbService.refreshMovieDetails(movieId));
+        }
+        hotKeyTracker.decay();
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    /**
+     * Refresh a key if it is missing or goes stale within the refresh-ahead window.
+     * Returns true when the key is cached (already fresh or refreshed now).
+     */
+    private boolean refreshIfExpiring(String key, long refreshAheadMillis, Runnable refresh) {
+        try {
+            if (movieCache.freshMillisRemaining(key) > refreshAheadMillis) {
+                return true;
+            }
+            refresh.run();
+            return movieCache.freshMillisRemaining(key) > 0;
+        } catch (Exception ex) {
+            log.warn("Failed to refresh cache key {}: {}", key, ex.getMessage());
+            return false;
+        }
+    }
+}
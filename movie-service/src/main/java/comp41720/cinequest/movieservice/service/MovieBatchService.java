@@ -0,0 +1,84 @@
+package comp41720.cinequest.movieservice.service;
+
+import comp41720.cinequest.movieservice.cache.HotKeyTracker;
+import comp41720.cinequest.movieservice.cache.MovieCache;
+import comp41720.cinequest.movieservice.cache.MovieCacheKeys;
+import comp41720.cinequest.movieservice.exception.MovieNotFoundException;
+import comp41720.cinequest.movieservice.model.Movie;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Resolves details for many movies in one request.
+ * Cached ids come back from a single MGET; only the misses go to TMDB, in parallel on a bounded pool.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class MovieBatchService {
+
+    private final TMDBService tmdbService;
+    private final MovieCache movieCache;
+    private final HotKeyTracker hotKeyTracker;
+    private final ThreadPoolTaskExecutor batchFetchExecutor;
+
+    @Value("${cache.batch.max-ids}")
+    private int maxIds;
+
+    /**
+     * Returns one movie per requested id, in request order, with null for ids TMDB does not know.
+     */
+    public List<Movie> getMovieDetails(List<Long> movieIds) {
+        if (movieIds.size() > maxIds) {
+            throw new IllegalArgumentException("At most " + maxIds + " ids can be requested at once");
+        }
+
+        List<Long> uniqueIds = new ArrayList<>(new LinkedHashSet<>(movieIds));
+        List<String> keys = uniqueIds.stream().map(MovieCacheKeys::details).toList();
+
+        // 1. Everything already cached, in one round trip
+        Map<String, Movie> cached = movieCache.getAll(keys, Movie.class);
+        Map<Long, Movie> resolved = new HashMap<>();
+        Map<Long, CompletableFuture<Movie>> pending = new HashMap<>();
+
+        for (int i = 0; i < uniqueIds.size(); i++) {
+            Long movieId = uniqueIds.get(i);
+            Movie movie = cached.get(keys.get(i));
+            if (movie != null) {
+                hotKeyTracker.recordDetailsAccess(movieId);
+                resolved.put(movieId, movie);
+            } else {
+                // 2. Misses go through the regular path (single-flight, circuit breaker, fallback)
+                pending.put(movieId, CompletableFuture.supplyAsync(
+                        () -> tmdbService.getMovieDetails(movieId), batchFetchExecutor));
+            }
+        }
+
+        pending.forEach((movieId, future) -> resolved.put(movieId, joinUnlessNotFound(future)));
+        log.debug("Batch of {} ids: {} cached, {} fetched", uniqueIds.size(), cached.size(), pending.size());
+
+        return movieIds.stream().map(resolved::get).toList();
+    }
+
+    private static Movie joinUnlessNotFound(CompletableFuture<Movie> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof MovieNotFoundException) {
+                return null;
+            }
+            throw ex;
+        }
+    }
+}
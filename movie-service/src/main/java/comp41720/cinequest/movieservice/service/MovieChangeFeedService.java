@@ -0,0 +1,213 @@
+package comp41720.cinequest.movieservice.service;
+
+import comp41720.cinequest.movieservice.cache.CacheEntry;
+import comp41720.cinequest.movieservice.cache.DistributedLease;
+import comp41720.cinequest.movieservice.cache.HotKeyTracker;
+import comp41720.cinequest.movieservice.cache.MovieCache;
+import comp41720.cinequest.movieservice.cache.MovieCacheKeys;
+import comp41720.cinequest.movieservice.cache.RedisGuard;
+import comp41720.cinequest.movieservice.cache.RedisShards;
+import comp41720.cinequest.movieservice.model.MovieChanges;
+import comp41720.cinequest.movieservice.service.client.RequestLane;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Keeps cached movie details in step with TMDB by polling its /movie/changes feed, so details can be cached
+ * for days instead of being refetched every couple of hours just in case.
+ *
+ * TMDB reports changed ids per UTC day, without times. Each poll (run by one replica, under a lease):
+ * 1. Today's feed: ids not seen earlier today are acted on once.
+ * 2. Once per day, yesterday's full feed: any cached entry stored before midnight is acted on again,
+ *    which catches edits made after an id was first seen yesterday.
+ * Acting on an id means refreshing its details if it is among the hottest keys, otherwise evicting it so the
+ * next request loads the new version. Ids we do not have cached cost nothing beyond the feed itself.
+ * The bookkeeping sets go through RedisGuard: while Redis is unavailable nothing is recorded as handled,
+ * so the next poll picks the same changes up again.
+ */
+@Service
+@Slf4j
+public class MovieChangeFeedService {
+
+    private static final String POLL_LEASE_KEY = "movies:changes:poll";
+
+    // SADD each id, returning only the ids that were not in the set yet
+    private static final RedisScript<List> ADD_NEW_SCRIPT = new DefaultRedisScript<>(
+            "local added = {} " +
+            "for i = 2, #ARGV do if redis.call('sadd', KEYS[1], ARGV[i]) == 1 then added[#added + 1] = ARGV[i] end end " +
+            "redis.call('expire', KEYS[1], ARGV[1]) " +
+            "return added",
+            List.class);
+
+    private static final Duration BOOKKEEPING_TTL = Duration.ofDays(2);
+
+    private final TMDBService tmdbService;
+    private final MovieCache movieCache;
+    private final HotKeyTracker hotKeyTracker;
+    private final DistributedLease lease;
+    private final RedisShards redisShards;
+    private final RedisGuard redisGuard;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${tmdb.changes.enabled}")
+    private boolean enabled;
+
+    @Value("${tmdb.changes.interval-ms}")
+    private long intervalMs;
+
+    @Value("${tmdb.changes.max-pages}")
+    private int maxPages;
+
+    @Value("${cache.prewarm.top-details}")
+    private int topDetails;
+
+    public MovieChangeFeedService(TMDBService tmdbService,
+                                  MovieCache movieCache,
+                                  HotKeyTracker hotKeyTracker,
+                                  DistributedLease lease,
+                                  RedisShards redisShards,
+                                  RedisGuard redisGuard,
+                                  MeterRegistry meterRegistry) {
+        this.tmdbService = tmdbService;
+        this.movieCache = movieCache;
+        this.hotKeyTracker = hotKeyTracker;
+        this.lease = lease;
+        this.redisShards = redisShards;
+        this.redisGuard = redisGuard;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(initialDelayString = "${tmdb.changes.interval-ms}", fixedDelayString = "${tmdb.changes.interval-ms}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        // Held until it expires, so the cluster polls once per interval
+        if (lease.tryAcquire(POLL_LEASE_KEY, Duration.ofMillis(intervalMs)) == null) {
+            return;
+        }
+
+        RequestLane.runInBackground(() -> {
+            try {
+                LocalDate today = LocalDate.now(ZoneOffset.UTC);
+                closeDay(today.minusDays(1), today.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli());
+                pollDay(today);
+            } catch (Exception ex) {
+                log.warn("TMDB change feed poll failed: {}", ex.getMessage());
+            }
+        });
+    }
+
+    private void pollDay(LocalDate day) {
+        String seenKey = MovieCacheKeys.changesSeen(day);
+        int acted = forEachPage(day, ids -> {
+            List<String> args = new ArrayList<>(ids.size() + 1);
+            args.add(String.valueOf(BOOKKEEPING_TTL.toSeconds()));
+            ids.forEach(id -> args.add(String.valueOf(id)));
+
+            // Unrecorded ids are not acted on now; they are still new on the next poll
+            List<?> added = redisGuard.call("changes", () -> redisShards.strings(seenKey)
+                    .execute(ADD_NEW_SCRIPT, List.of(seenKey), args.toArray()), null);
+            List<Long> newIds = added == null ? List.of()
+                    : added.stream().map(id -> Long.valueOf(id.toString())).toList();
+            return apply(newIds, entry -> true);
+        });
+        if (acted > 0) {
+            log.info("TMDB change feed: {} cached movies changed today", acted);
+        }
+    }
+
+    private void closeDay(LocalDate day, long endOfDayMillis) {
+        String closedKey = MovieCacheKeys.changesClosed(day);
+        // Without Redis we cannot tell whether the day was closed already, so leave it for a later poll
+        Boolean closed = redisGuard.call("changes", () -> redisShards.strings(closedKey).hasKey(closedKey), null);
+        if (closed == null || closed) {
+            return;
+        }
+
+        int acted = forEachPage(day, ids -> apply(ids, entry -> entry.getStoredAt() < endOfDayMillis));
+        redisGuard.run("changes", () -> redisShards.strings(closedKey).opsForValue().set(closedKey, "1", BOOKKEEPING_TTL));
+        log.info("TMDB change feed: closed {}, {} cached movies updated", day, acted);
+    }
+
+    // Walk every page of a day's feed, returning the number of cache entries acted on
+    private int forEachPage(LocalDate day, PageHandler handler) {
+        int acted = 0;
+        int totalPages = 1;
+        for (int page = 1; page <= Math.min(totalPages, maxPages); page++) {
+            MovieChanges changes = tmdbService.getMovieChanges(day, page);
+            if (changes == null || changes.getResults() == null || changes.getResults().isEmpty()) {
+                break;
+            }
+            totalPages = changes.getTotalPages() != null ? changes.getTotalPages() : 1;
+
+            List<Long> ids = changes.getResults().stream()
+                    .map(MovieChanges.ChangedMovie::getId)
+                    .filter(id -> id != null)
+                    .toList();
+            acted += handler.handle(ids);
+        }
+        if (totalPages > maxPages) {
+            log.warn("TMDB change feed for {} has {} pages, only the first {} were read", day, totalPages, maxPages);
+        }
+        return acted;
+    }
+
+    // Refresh or evict the cached details among these ids whose entry matches the filter
+    private int apply(List<Long> ids, Predicate<CacheEntry> stale) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        List<String> keys = ids.stream().map(MovieCacheKeys::details).toList();
+        Map<String, CacheEntry> cached = movieCache.peekRemoteEntries(keys);
+        Set<Long> hot = new HashSet<>(hotKeyTracker.topDetails(topDetails));
+
+        int acted = 0;
+        for (Long id : ids) {
+            CacheEntry entry = cached.get(MovieCacheKeys.details(id));
+            if (entry == null || !stale.test(entry)) {
+                continue;
+            }
+
+            if (hot.contains(id)) {
+                try {
+                    tmdbService.refreshMovieDetails(id);
+                    count("refreshed");
+                    acted++;
+                    continue;
+                } catch (Exception ex) {
+                    log.debug("Refresh of changed movie {} failed, evicting instead: {}", id, ex.getMessage());
+                }
+            }
+            movieCache.evict(MovieCacheKeys.details(id));
+            count("evicted");
+            acted++;
+        }
+        return acted;
+    }
+
+    private void count(String action) {
+        meterRegistry.counter("movie.cache.changes", "action", action).increment();
+    }
+
+    @FunctionalInterface
+    private interface PageHandler {
+        int handle(List<Long> ids);
+    }
+}
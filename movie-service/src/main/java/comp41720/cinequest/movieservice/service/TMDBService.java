@@ -1,18 +1,39 @@
 package comp41720.cinequest.movieservice.service;
 
+import comp41720.cinequest.movieservice.cache.CatalogSnapshot;
+import comp41720.cinequest.movieservice.cache.HotKeyTracker;
+import comp41720.cinequest.movieservice.cache.MovieCache;
+import comp41720.cinequest.movieservice.cache.MovieCacheKeys;
+import comp41720.cinequest.movieservice.cache.MovieListCache;
+import comp41720.cinequest.movieservice.cache.NegativeMovieCache;
+import comp41720.cinequest.movieservice.cache.PagePrefetcher;
+import comp41720.cinequest.movieservice.exception.MovieNotFoundException;
+import comp41720.cinequest.movieservice.index.MovieIngestListener;
+import comp41720.cinequest.movieservice.index.MovieSearchIndex;
 import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.MovieChanges;
 import comp41720.cinequest.movieservice.model.TMDBResponse;
+import comp41720.cinequest.movieservice.service.client.TMDBClient;
+import comp41720.cinequest.movieservice.service.client.TMDBRequestScheduler;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
 
 @Service
 @Slf4j
@@ -20,8 +41,17 @@ import java.util.concurrent.TimeUnit;
 public class TMDBService {
 
     // Final fields, constructor generated by Lombok. Dependency injection fields (with final)
-    private final RestTemplate restTemplate;
-    private final RedisTemplate<String,Object> redisTemplate;
+    private final TMDBClient tmdbClient;
+    private final TMDBRequestScheduler requestScheduler;
+    private final MovieCache movieCache;
+    private final MovieListCache movieListCache;
+    private final CatalogSnapshot catalogSnapshot;
+    private final HotKeyTracker hotKeyTracker;
+    private final NegativeMovieCache negativeMovieCache;
+    private final PagePrefetcher pagePrefetcher;
+    private final MovieSearchIndex movieSearchIndex;
+    private final List<MovieIngestListener> ingestListeners;
+    private final MeterRegistry meterRegistry;
 
     // Configuration injection fields (without final)
     @Value("${tmdb.api.base-url}")
@@ -39,61 +69,51 @@ public class TMDBService {
     @Value("${cache.ttl.search}")
     private long searchCacheTTL;
 
+    @Value("${search.local.enabled}")
+    private boolean localSearchEnabled;
+
+    @Value("${search.local.min-results}")
+    private int localSearchMinResults;
+
+    @Value("${cache.prefetch.pages}")
+    private int prefetchPages;
+
 
     // get popular movies
     @CircuitBreaker(name = "tmdbService", fallbackMethod = "getPopularMoviesFallback")
     @Retry(name = "tmdbService")
     public TMDBResponse getPopularMovies(int page) {
-        String cacheKey = "movies:popular:" + page;
-
-        // 1. Check Redis cache
-        TMDBResponse cachedResponse = (TMDBResponse) redisTemplate.opsForValue().get(cacheKey);
-        if (cachedResponse != null) {
-            log.info("Cache hit for popular movies page {}", page);
-            return cachedResponse;
-        }
-
-        // 2. Cache miss, call TMDB API
-        log.info("Cache miss for popular movies page {}, calling TMDB API", page);
-        String url = String.format("%s/movie/popular?api_key=%s&page=%d&language=en-US",
-                tmdbBaseUrl, tmdbApiKey, page);
-
-        TMDBResponse response = restTemplate.getForObject(url, TMDBResponse.class);
-
-        // 3. Store in Redis cache
-        if (response != null) {
-            redisTemplate.opsForValue().set(cacheKey, response, popularCacheTTL, TimeUnit.SECONDS);
-            log.info("Cached popular movies page {} for {} seconds", page, popularCacheTTL);
+        String key = MovieCacheKeys.popular(page);
+        boolean prefetched = pagePrefetcher.consume(key);
+
+        // Check local and Redis cache; on a miss only one caller per key calls TMDB and caches the result
+        AtomicBoolean fetched = new AtomicBoolean(false);
+        TMDBResponse response = movieListCache.getOrLoad(key, popularCacheTTL, () -> {
+            fetched.set(true);
+            return fetchPopularMovies(page);
+        });
+
+        if (prefetched || fetched.get()) {
+            prefetchNextPages(response, page, MovieCacheKeys::popular, popularCacheTTL, this::fetchPopularMovies);
         }
-
-        return response;
+        return ingest(response);
     }
-// get movie info details
+
+    // get movie info details
     @CircuitBreaker(name = "tmdbService", fallbackMethod = "getMovieDetailsFallback")
     @Retry(name = "tmdbService")
     public Movie getMovieDetails(Long movieId) {
-        String cacheKey = "movies:details:" + movieId;
-
-        // Check cache
-        Movie cachedMovie = (Movie) redisTemplate.opsForValue().get(cacheKey);
-        if (cachedMovie != null) {
-            log.info("Cache hit for movie details {}", movieId);
-            return cachedMovie;
+        // Known-bad ids are answered in-process, without touching Redis or TMDB
+        if (negativeMovieCache.isKnownMissing(movieId)) {
+            throw new MovieNotFoundException(movieId);
         }
+        hotKeyTracker.recordDetailsAccess(movieId);
 
-        // Call API
-        log.info("Cache miss for movie details {}, calling TMDB API", movieId);
-        String url = String.format("%s/movie/%d?api_key=%s&language=en-US",
-                tmdbBaseUrl, movieId, tmdbApiKey);
-
-        Movie movie = restTemplate.getForObject(url, Movie.class);
-
-        // Store in cache
+        Movie movie = movieCache.getOrLoad(MovieCacheKeys.details(movieId), Movie.class, detailsCacheTTL,
+                () -> fetchMovieDetails(movieId));
         if (movie != null) {
-            redisTemplate.opsForValue().set(cacheKey, movie, detailsCacheTTL, TimeUnit.SECONDS);
-            log.info("Cached movie details {} for {} seconds", movieId, detailsCacheTTL);
+            ingestListeners.forEach(listener -> listener.ingest(List.of(movie)));
         }
-
         return movie;
     }
 
@@ -101,35 +121,171 @@ public class TMDBService {
     @CircuitBreaker(name = "tmdbService", fallbackMethod = "searchMoviesFallback")
     @Retry(name = "tmdbService")
     public TMDBResponse searchMovies(String query, int page) {
-        String cacheKey = "movies:search:" + query + ":" + page;
+        // Answer from the local index when it has enough matches, otherwise ask TMDB. All pages of a query
+        // come from the source that answered its page 1.
+        if (localSearchEnabled) {
+            TMDBResponse local = movieSearchIndex.search(query, page, localSearchMinResults);
+            if (local != null) {
+                log.debug("Local index answered search query: {}", query);
+                return local;
+            }
+        }
+
+        String key = MovieCacheKeys.search(query, page);
+        boolean prefetched = pagePrefetcher.consume(key);
+
+        AtomicBoolean fetched = new AtomicBoolean(false);
+        TMDBResponse response = movieListCache.getOrLoad(key, searchCacheTTL, () -> {
+            fetched.set(true);
+            return fetchSearchResults(query, page);
+        });
 
-        // Check cache
-        TMDBResponse cachedResponse = (TMDBResponse) redisTemplate.opsForValue().get(cacheKey);
-        if (cachedResponse != null) {
-            log.info("Cache hit for search query: {}", query);
-            return cachedResponse;
+        if (prefetched || fetched.get()) {
+            prefetchNextPages(response, page, next -> MovieCacheKeys.search(query, next), searchCacheTTL,
+                    next -> fetchSearchResults(query, next));
         }
+        return ingest(response);
+    }
 
-        // Call API
-        log.info("Cache miss for search query: {}, calling TMDB API", query);
-        String url = String.format("%s/search/movie?api_key=%s&query=%s&page=%d&language=en-US",
-                tmdbBaseUrl, tmdbApiKey, query, page);
+    // Refresh-ahead: reload a cached entry before it expires. No fallback, failures surface to the caller.
+    @CircuitBreaker(name = "tmdbService")
+    public TMDBResponse refreshPopularMovies(int page) {
+        return movieListCache.refresh(MovieCacheKeys.popular(page), popularCacheTTL, () -> fetchPopularMovies(page));
+    }
 
-        TMDBResponse response = restTemplate.getForObject(url, TMDBResponse.class);
+    @CircuitBreaker(name = "tmdbService")
+    public Movie refreshMovieDetails(Long movieId) {
+        return movieCache.refresh(MovieCacheKeys.details(movieId), Movie.class, detailsCacheTTL,
+                () -> fetchMovieDetails(movieId));
+    }
 
-        // Store in cache
-        if (response != null) {
-            redisTemplate.opsForValue().set(cacheKey, response, searchCacheTTL, TimeUnit.SECONDS);
-            log.info("Cached search results for '{}' page {} for {} seconds", query, page, searchCacheTTL);
+    // One page of movie ids TMDB changed on a (UTC) day. No fallback, failures surface to the caller.
+    @CircuitBreaker(name = "tmdbService")
+    public MovieChanges getMovieChanges(LocalDate date, int page) {
+        String url = String.format("%s/movie/changes?api_key=%s&start_date=%s&end_date=%s&page=%d",
+                tmdbBaseUrl, tmdbApiKey, date, date, page);
+        return callTmdb("changes", url, MovieChanges.class);
+    }
+
+    public long getPopularCacheTTL() {
+        return popularCacheTTL;
+    }
+
+    public long getDetailsCacheTTL() {
+        return detailsCacheTTL;
+    }
+
+    // Visitors page forward: once page N had to come from TMDB (or was itself prefetched), load the pages
+    // after it in the background. Pages that came from the cache do not trigger anything.
+    private void prefetchNextPages(TMDBResponse response, int page, IntFunction<String> key, long ttlSeconds,
+                                   IntFunction<TMDBResponse> fetch) {
+        // TMDB reports total_pages past the last page it will serve (500)
+        int totalPages = response != null && response.getTotalPages() != null
+                ? Math.min(response.getTotalPages(), 500) : 0;
+        for (int next = page + 1; next <= Math.min(page + prefetchPages, totalPages); next++) {
+            int nextPage = next;
+            movieListCache.prefetch(key.apply(nextPage), ttlSeconds, () -> fetch.apply(nextPage));
         }
+    }
 
+    private TMDBResponse ingest(TMDBResponse response) {
+        if (response != null && response.getResults() != null) {
+            ingestListeners.forEach(listener -> listener.ingest(response.getResults()));
+        }
         return response;
     }
 
-    // Fallback functions
+    // TMDB calls
+    private TMDBResponse fetchPopularMovies(int page) {
+        log.debug("Cache miss for popular movies page {}, calling TMDB API", page);
+        String url = String.format("%s/movie/popular?api_key=%s&page=%d&language=en-US",
+                tmdbBaseUrl, tmdbApiKey, page);
+
+        return callTmdb("popular", url, TMDBResponse.class);
+    }
+
+    private Movie fetchMovieDetails(Long movieId) {
+        // Another replica may already have found that TMDB does not know this id
+        if (negativeMovieCache.isMissingInRedis(movieId)) {
+            throw new MovieNotFoundException(movieId);
+        }
+
+        log.debug("Cache miss for movie details {}, calling TMDB API", movieId);
+        String url = String.format("%s/movie/%d?api_key=%s&language=en-US",
+                tmdbBaseUrl, movieId, tmdbApiKey);
+
+        try {
+            return callTmdb("details", url, Movie.class);
+        } catch (HttpClientErrorException.NotFound ex) {
+            log.debug("Movie {} not found on TMDB, caching the miss", movieId);
+            negativeMovieCache.recordMissing(movieId);
+            // The movie may have been deleted upstream after we cached it
+            movieCache.evict(MovieCacheKeys.details(movieId));
+            throw new MovieNotFoundException(movieId);
+        }
+    }
+
+    private TMDBResponse fetchSearchResults(String query, int page) {
+        log.debug("Cache miss for search query: {}, calling TMDB API", query);
+        // TMDB gets the query as typed (its own search ignores case and accents), encoded so that
+        // "&", "+" or "#" stay part of it (and spaces are %20, not "+")
+        String encodedQuery = URLEncoder.encode(query.strip().replaceAll("\\s+", " "), StandardCharsets.UTF_8)
+                .replace("+", "%20");
+        String url = String.format("%s/search/movie?api_key=%s&query=%s&page=%d&language=en-US",
+                tmdbBaseUrl, tmdbApiKey, encodedQuery, page);
+
+        return callTmdb("search", url, TMDBResponse.class);
+    }
+
+    // Every TMDB call takes a rate limit token first, and is timed into tmdb.requests
+    // tagged by endpoint and HTTP status (or the failure type)
+    private <T> T callTmdb(String endpoint, String url, Class<T> type) {
+        requestScheduler.acquire();
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String status = "200";
+        try {
+            return tmdbClient.getForObject(url, type);
+        } catch (HttpClientErrorException.TooManyRequests ex) {
+            status = "429";
+            requestScheduler.pause(retryAfterSeconds(ex));
+            throw ex;
+        } catch (HttpStatusCodeException ex) {
+            status = String.valueOf(ex.getStatusCode().value());
+            throw ex;
+        } catch (RuntimeException ex) {
+            status = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            sample.stop(Timer.builder("tmdb.requests")
+                    .description("TMDB API call latency")
+                    .tag("endpoint", endpoint)
+                    .tag("status", status)
+                    .register(meterRegistry));
+        }
+    }
+
+    private long retryAfterSeconds(HttpClientErrorException ex) {
+        String retryAfter = ex.getResponseHeaders() != null
+                ? ex.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER)
+                : null;
+        try {
+            return retryAfter != null ? Long.parseLong(retryAfter.trim()) : 1;
+        } catch (NumberFormatException e) {
+            // HTTP-date form, TMDB does not send it
+            return 1;
+        }
+    }
+
+    // Fallback functions: serve a stale cached copy from Redis or the disk snapshot, otherwise a placeholder
     private TMDBResponse getPopularMoviesFallback(int page, Exception ex) {
         log.error("Fallback triggered for popular movies page {}: {}", page, ex.getMessage());
 
+        TMDBResponse stale = findStalePage(MovieCacheKeys.popular(page));
+        if (stale != null) {
+            return stale;
+        }
+
         TMDBResponse fallbackResponse = new TMDBResponse();
         fallbackResponse.setPage(page);
         fallbackResponse.setResults(new ArrayList<>());
@@ -142,6 +298,11 @@ public class TMDBService {
     private Movie getMovieDetailsFallback(Long movieId, Exception ex) {
         log.error("Fallback triggered for movie details {}: {}", movieId, ex.getMessage());
 
+        Movie stale = findStale(MovieCacheKeys.details(movieId), Movie.class);
+        if (stale != null) {
+            return stale;
+        }
+
         Movie fallbackMovie = new Movie();
         fallbackMovie.setId(movieId);
         fallbackMovie.setTitle("Movie information temporarily unavailable");
@@ -150,9 +311,19 @@ public class TMDBService {
         return fallbackMovie;
     }
 
+    // Unknown ids are an answer, not an outage: pass them through instead of a placeholder movie
+    private Movie getMovieDetailsFallback(Long movieId, MovieNotFoundException ex) {
+        throw ex;
+    }
+
     private TMDBResponse searchMoviesFallback(String query, int page, Exception ex) {
         log.error("Fallback triggered for search query '{}': {}", query, ex.getMessage());
 
+        TMDBResponse stale = findStalePage(MovieCacheKeys.search(query, page));
+        if (stale != null) {
+            return stale;
+        }
+
         TMDBResponse fallbackResponse = new TMDBResponse();
         fallbackResponse.setPage(page);
         fallbackResponse.setResults(new ArrayList<>());
@@ -161,4 +332,43 @@ public class TMDBService {
 
         return fallbackResponse;
     }
+
+    private <T> T findStale(String cacheKey, Class<T> type) {
+        try {
+            T stale = movieCache.getStale(cacheKey, type);
+            if (stale != null) {
+                log.info("Serving stale cache entry {}", cacheKey);
+                return stale;
+            }
+        } catch (Exception ex) {
+            log.warn("Stale lookup failed for {}: {}", cacheKey, ex.getMessage());
+        }
+
+        // Redis has nothing (or is down): last resort is the on-disk snapshot
+        T snapshot = catalogSnapshot.get(cacheKey, type);
+        if (snapshot != null) {
+            log.info("Serving snapshot entry {}", cacheKey);
+        }
+        return snapshot;
+    }
+
+    // Same as findStale, for a page whose movies are cached separately
+    private TMDBResponse findStalePage(String cacheKey) {
+        try {
+            TMDBResponse stale = movieListCache.getStale(cacheKey);
+            if (stale != null) {
+                log.info("Serving stale cache entry {}", cacheKey);
+                return stale;
+            }
+        } catch (Exception ex) {
+            log.warn("Stale lookup failed for {}: {}", cacheKey, ex.getMessage());
+        }
+
+        TMDBResponse snapshot = movieListCache.hydrate(catalogSnapshot.get(cacheKey, Object.class),
+                keys -> catalogSnapshot.getAll(keys, Movie.class));
+        if (snapshot != null) {
+            log.info("Serving snapshot entry {}", cacheKey);
+        }
+        return snapshot;
+    }
 }
@@ -0,0 +1,160 @@
+package comp41720.cinequest.movieservice.service.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Non-blocking TMDB client on java.net.http.HttpClient (tmdb.client.mode=http-client).
+ *
+ * - Keep-alive connection pooling, HTTP/2 negotiated where the server supports it, gzip responses.
+ * - I/O runs on the client's selector thread; only the calling thread waits for the decoded result.
+ * - At most max-connections-per-host requests are in flight per host. A caller that cannot get a slot
+ *   within acquire-timeout fails fast with ResourceAccessException, so a slow TMDB sheds load into the
+ *   circuit breaker and fallbacks instead of parking every servlet thread on the upstream.
+ * How long idle pooled connections are kept is a JVM-wide JDK setting, not part of this configuration:
+ * -Djdk.httpclient.keepalive.timeout=60 (seconds, the JDK default is 1200).
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "tmdb.client.mode", havingValue = "http-client")
+public class HttpClientTMDBClient implements TMDBClient {
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    @Value("${tmdb.client.read-timeout-ms}")
+    private long readTimeoutMs;
+
+    @Value("${tmdb.client.max-connections-per-host}")
+    private int maxConnectionsPerHost;
+
+    @Value("${tmdb.client.acquire-timeout-ms}")
+    private long acquireTimeoutMs;
+
+    public HttpClientTMDBClient(ObjectMapper objectMapper,
+                                @Value("${tmdb.client.connect-timeout-ms}") long connectTimeoutMs) {
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Override
+    public <T> T getForObject(String url, Class<T> responseType) {
+        try {
+            return getAsync(url, responseType).get(readTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | CompletionException ex) {
+            throw translate(ex.getCause(), url);
+        } catch (TimeoutException ex) {
+            throw new ResourceAccessException("TMDB request timed out after " + readTimeoutMs + "ms");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting for TMDB");
+        }
+    }
+
+    /**
+     * Send the request without blocking; the returned future completes on the client's threads.
+     */
+    public <T> CompletableFuture<T> getAsync(String url, Class<T> responseType) {
+        URI uri = URI.create(url);
+        Semaphore permits = hostPermits.computeIfAbsent(uri.getHost(), host -> new Semaphore(maxConnectionsPerHost));
+
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.failedFuture(new ResourceAccessException(
+                        "TMDB connection limit reached for host " + uri.getHost()));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new ResourceAccessException("Interrupted while waiting for TMDB"));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(readTimeoutMs))
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+
+        CompletableFuture<HttpResponse<byte[]>> sent;
+        try {
+            sent = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (RuntimeException ex) {
+            // Rejected before anything was sent (e.g. the client is shutting down): the permit is not passed on
+            permits.release();
+            return CompletableFuture.failedFuture(ex);
+        }
+        return sent
+                .whenComplete((response, error) -> permits.release())
+                .thenApply(response -> decode(response, responseType));
+    }
+
+    private <T> T decode(HttpResponse<byte[]> response, Class<T> responseType) {
+        byte[] body = response.body();
+        HttpHeaders headers = new HttpHeaders();
+        response.headers().map().forEach(headers::addAll);
+
+        try {
+            if ("gzip".equalsIgnoreCase(headers.getFirst(HttpHeaders.CONTENT_ENCODING))) {
+                try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                    body = in.readAllBytes();
+                }
+            }
+
+            HttpStatusCode status = HttpStatusCode.valueOf(response.statusCode());
+            if (status.is4xxClientError()) {
+                throw HttpClientErrorException.create(status, "", headers, body, StandardCharsets.UTF_8);
+            }
+            if (status.is5xxServerError()) {
+                throw HttpServerErrorException.create(status, "", headers, body, StandardCharsets.UTF_8);
+            }
+
+            return body.length == 0 ? null : objectMapper.readValue(body, responseType);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private RuntimeException translate(Throwable cause, String url) {
+        if (cause instanceof HttpClientErrorException || cause instanceof HttpServerErrorException
+                || cause instanceof ResourceAccessException) {
+            return (RuntimeException) cause;
+        }
+
+        // Never log the full URL, it carries the API key
+        String path = URI.create(url).getPath();
+        log.warn("TMDB request to {} failed: {}", path, cause.toString());
+        return new ResourceAccessException("I/O error on GET request for TMDB " + path + ": " + cause.getMessage());
+    }
+}
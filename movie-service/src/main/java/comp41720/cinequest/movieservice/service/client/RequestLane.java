@@ -0,0 +1,37 @@
+package comp41720.cinequest.movieservice.service.client;
+
+/**
+ * Priority lane of the TMDB request being made on the current thread.
+ * Requests are INTERACTIVE (a user is waiting) unless the work was started through one of the helpers here.
+ */
+public enum RequestLane {
+
+    INTERACTIVE,
+    BACKGROUND;
+
+    private static final ThreadLocal<RequestLane> CURRENT = ThreadLocal.withInitial(() -> INTERACTIVE);
+
+    public static RequestLane current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Run work in the background lane, e.g. a scheduled prewarm.
+     */
+    public static void runInBackground(Runnable work) {
+        RequestLane previous = CURRENT.get();
+        CURRENT.set(BACKGROUND);
+        try {
+            work.run();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * TaskDecorator for executors that only do background work.
+     */
+    public static Runnable background(Runnable task) {
+        return () -> runInBackground(task);
+    }
+}
@@ -0,0 +1,25 @@
+package comp41720.cinequest.movieservice.service.client;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+
+/**
+ * Blocking TMDB client on the shared RestTemplate (tmdb.client.mode=rest-template).
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "tmdb.client.mode", havingValue = "rest-template", matchIfMissing = true)
+public class RestTemplateTMDBClient implements TMDBClient {
+
+    private final RestTemplate restTemplate;
+
+    @Override
+    public <T> T getForObject(String url, Class<T> responseType) {
+        // A String URL would be encoded again by RestTemplate, turning %20 into %2520
+        return restTemplate.getForObject(URI.create(url), responseType);
+    }
+}
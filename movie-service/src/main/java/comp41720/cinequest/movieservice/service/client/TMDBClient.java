@@ -0,0 +1,15 @@
+package comp41720.cinequest.movieservice.service.client;
+
+/**
+ * HTTP transport used by TMDBService to call the TMDB API.
+ * Implementations throw the same RestClientException types as RestTemplate
+ * (HttpClientErrorException, HttpServerErrorException, ResourceAccessException),
+ * so circuit breaking, retry and GlobalExceptionHandler behave the same whichever is configured.
+ */
+public interface TMDBClient {
+
+    /**
+     * GET a fully encoded URL; it is used as is, not expanded as a URI template or encoded again.
+     */
+    <T> T getForObject(String url, Class<T> responseType);
+}
@@ -0,0 +1,187 @@
+package comp41720.cinequest.movieservice.service.client;
+
+import comp41720.cinequest.movieservice.exception.UpstreamThrottledException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket in front of every TMDB request from this replica, sized to TMDB's published rate limit.
+ *
+ * Two lanes share the bucket. INTERACTIVE requests (a user is waiting) may use every token; BACKGROUND work
+ * (prewarming, refresh-ahead, stale refreshes) must leave tmdb.rate-limit.background-reserve tokens and always
+ * yields to waiting interactive requests. When no token is available a caller waits up to its lane's max wait,
+ * or is shed straight away with UpstreamThrottledException if too many callers are already waiting.
+ * A 429 from TMDB pauses the whole bucket for the Retry-After period instead of letting retries pile on.
+ */
+@Component
+@Slf4j
+public class TMDBRequestScheduler {
+
+    private final double permitsPerMilli;
+    private final double burst;
+    private final double backgroundReserve;
+    private final Map<RequestLane, Long> maxWaitMs = new EnumMap<>(RequestLane.class);
+    private final int maxWaiting;
+
+    private final Map<RequestLane, Integer> waiting = new EnumMap<>(RequestLane.class);
+    private final Map<RequestLane, Counter> shed = new EnumMap<>(RequestLane.class);
+
+    // A token taken with tryAcquire that the thread's next acquire spends
+    private final ThreadLocal<Boolean> held = ThreadLocal.withInitial(() -> false);
+
+    private double tokens;
+    private long lastRefill = System.currentTimeMillis();
+    private long pausedUntil = 0;
+
+    public TMDBRequestScheduler(MeterRegistry meterRegistry,
+                                @Value("${tmdb.rate-limit.requests-per-second}") double requestsPerSecond,
+                                @Value("${tmdb.rate-limit.burst}") int burst,
+                                @Value("${tmdb.rate-limit.background-reserve}") int backgroundReserve,
+                                @Value("${tmdb.rate-limit.interactive-max-wait-ms}") long interactiveMaxWaitMs,
+                                @Value("${tmdb.rate-limit.background-max-wait-ms}") long backgroundMaxWaitMs,
+                                @Value("${tmdb.rate-limit.max-waiting}") int maxWaiting) {
+        this.permitsPerMilli = requestsPerSecond / 1000.0;
+        this.burst = burst;
+        this.backgroundReserve = backgroundReserve;
+        this.maxWaiting = maxWaiting;
+        this.tokens = burst;
+        maxWaitMs.put(RequestLane.INTERACTIVE, interactiveMaxWaitMs);
+        maxWaitMs.put(RequestLane.BACKGROUND, backgroundMaxWaitMs);
+
+        for (RequestLane lane : RequestLane.values()) {
+            String tag = lane.name().toLowerCase();
+            waiting.put(lane, 0);
+            shed.put(lane, Counter.builder("tmdb.scheduler.shed")
+                    .description("TMDB requests shed by the local rate limiter")
+                    .tag("lane", tag)
+                    .register(meterRegistry));
+            Gauge.builder("tmdb.scheduler.waiting", this, scheduler -> scheduler.waitingCount(lane))
+                    .description("Requests waiting for a TMDB rate limit token")
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Take a token for one TMDB request in the current thread's lane, waiting if needed.
+     * Throws UpstreamThrottledException when the request is shed.
+     */
+    public void acquire() {
+        if (held.get()) {
+            held.remove();
+            return;
+        }
+        RequestLane lane = RequestLane.current();
+        long deadline = System.currentTimeMillis() + maxWaitMs.get(lane);
+
+        synchronized (this) {
+            if (waiting.get(lane) >= maxWaiting) {
+                throw shed(lane, "too many requests waiting");
+            }
+
+            waiting.merge(lane, 1, Integer::sum);
+            try {
+                while (true) {
+                    long now = System.currentTimeMillis();
+                    refill(now);
+
+                    if (now >= pausedUntil && tokens >= 1 + reserveFor(lane)) {
+                        tokens -= 1;
+                        return;
+                    }
+
+                    long waitMs = now < pausedUntil
+                            ? pausedUntil - now
+                            : (long) Math.ceil((1 + reserveFor(lane) - tokens) / permitsPerMilli);
+                    if (now + waitMs > deadline) {
+                        throw shed(lane, "rate limit budget exhausted");
+                    }
+                    wait(Math.max(1, waitMs));
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw shed(lane, "interrupted while waiting");
+            } finally {
+                waiting.merge(lane, -1, Integer::sum);
+                // Background waiters may be able to proceed now that this request is done waiting
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Take a token in the current thread's lane only if one is available right now, never waiting.
+     * The thread's next acquire spends it instead of taking another; releaseUnused gives it back if that
+     * acquire never comes (e.g. the value turned out to be cached).
+     */
+    public boolean tryAcquire() {
+        RequestLane lane = RequestLane.current();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            refill(now);
+            if (now < pausedUntil || waiting.get(lane) > 0 || tokens < 1 + reserveFor(lane)) {
+                return false;
+            }
+            tokens -= 1;
+        }
+        held.set(true);
+        return true;
+    }
+
+    /**
+     * Return a token taken with tryAcquire that no request has spent.
+     */
+    public void releaseUnused() {
+        if (!held.get()) {
+            return;
+        }
+        held.remove();
+        synchronized (this) {
+            tokens = Math.min(burst, tokens + 1);
+            notifyAll();
+        }
+    }
+
+    /**
+     * TMDB answered 429: stop sending requests until its Retry-After has passed.
+     */
+    public synchronized void pause(long retryAfterSeconds) {
+        long until = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Math.max(1, retryAfterSeconds));
+        if (until > pausedUntil) {
+            pausedUntil = until;
+            tokens = 0;
+            log.warn("TMDB rate limited us, pausing upstream requests for {}s", retryAfterSeconds);
+        }
+    }
+
+    private double reserveFor(RequestLane lane) {
+        if (lane == RequestLane.INTERACTIVE) {
+            return 0;
+        }
+        // Background work never takes a token an interactive request is waiting for
+        return waiting.get(RequestLane.INTERACTIVE) > 0 ? burst : backgroundReserve;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerMilli);
+        lastRefill = now;
+    }
+
+    private UpstreamThrottledException shed(RequestLane lane, String reason) {
+        shed.get(lane).increment();
+        long retryAfterSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(pausedUntil - System.currentTimeMillis()));
+        return new UpstreamThrottledException("TMDB request shed (" + lane + "): " + reason, retryAfterSeconds);
+    }
+
+    private synchronized int waitingCount(RequestLane lane) {
+        return waiting.get(lane);
+    }
+}
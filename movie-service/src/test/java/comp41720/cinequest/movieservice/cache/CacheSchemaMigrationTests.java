@@ -0,0 +1,110 @@
+package comp41720.cinequest.movieservice.cache;
+
+import comp41720.cinequest.movieservice.cache.codec.CacheValueCodecs;
+import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.MovieIdPage;
+import comp41720.cinequest.movieservice.model.TMDBResponse;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CacheSchemaMigrationTests {
+
+	private final RedisShards redisShards = mock(RedisShards.class);
+	private final CacheSchemaMigration migration = new CacheSchemaMigration(redisShards, mock(CacheValueCodecs.class),
+			new RedisGuard(CircuitBreakerRegistry.ofDefaults(), new CacheMetrics(new SimpleMeterRegistry())),
+			mock(DistributedLease.class), new SimpleMeterRegistry(), true);
+
+	CacheSchemaMigrationTests() {
+		ReflectionTestUtils.setField(migration, "detailsCacheTTL", 86400L);
+		ReflectionTestUtils.setField(migration, "staleGrace", 21600L);
+	}
+
+	@Test
+	void popularAndDetailsKeysMoveToTheCurrentNamespace() {
+		assertThat(MovieCacheKeys.fromPrevious("movies:popular:3")).isEqualTo(MovieCacheKeys.popular(3));
+		assertThat(MovieCacheKeys.fromPrevious("movies:details:550")).isEqualTo(MovieCacheKeys.details(550L));
+		assertThat(MovieCacheKeys.toPrevious(MovieCacheKeys.details(550L))).isEqualTo("movies:details:550");
+	}
+
+	@Test
+	void rawQuerySearchKeysAreReKeyedToTheirHash() {
+		assertThat(MovieCacheKeys.fromPrevious("movies:search:The Matrix:2"))
+				.isEqualTo(MovieCacheKeys.search("the matrix", 2));
+		assertThat(MovieCacheKeys.fromPrevious("movies:search:Se7en: Director's Cut:1"))
+				.isEqualTo(MovieCacheKeys.search("Se7en: Director's Cut", 1));
+	}
+
+	@Test
+	void hashedSearchKeysKeepTheirHash() {
+		String current = MovieCacheKeys.search("amelie", 1);
+		String previous = MovieCacheKeys.toPrevious(current);
+
+		assertThat(MovieCacheKeys.fromPrevious(previous)).isEqualTo(current);
+	}
+
+	@Test
+	void otherKeysAreNotMigrated() {
+		assertThat(MovieCacheKeys.fromPrevious("movies:missing:550")).isNull();
+		assertThat(MovieCacheKeys.fromPrevious("movies:changes:seen:2026-01-01")).isNull();
+		assertThat(MovieCacheKeys.fromPrevious(MovieCacheKeys.details(550L))).isNull();
+		assertThat(MovieCacheKeys.fromPrevious("movies:search:no-page")).isNull();
+		assertThat(MovieCacheKeys.fromPrevious("movies:search:   :1")).isNull();
+		assertThat(MovieCacheKeys.fromPrevious("movies:search:batman:next")).isNull();
+	}
+
+	@Test
+	void wholePageIsSplitIntoIdsAndMoviesThatLiveAtLeastAsLong() {
+		long storedAt = System.currentTimeMillis();
+		long freshUntil = storedAt + 3 * 86_400_000L;
+		TMDBResponse response = new TMDBResponse();
+		response.setPage(1);
+		response.setResults(List.of(movie(13L), movie(550L)));
+		response.setTotalPages(4);
+		response.setTotalResults(80);
+
+		Map<String, CacheEntry> upgraded = migration.upgrade("movies:search:Forrest:1",
+				new CacheEntry(response, storedAt, freshUntil, null));
+
+		String pageKey = MovieCacheKeys.search("forrest", 1);
+		assertThat(upgraded).containsOnlyKeys(pageKey, MovieCacheKeys.details(13L), MovieCacheKeys.details(550L));
+		assertThat(upgraded.get(pageKey).getValue()).isEqualTo(new MovieIdPage(1, List.of(13L, 550L), 4, 80));
+		assertThat(upgraded.get(MovieCacheKeys.details(13L)).getFreshUntil()).isEqualTo(freshUntil);
+	}
+
+	@Test
+	void entryOfUnknownExpiryIsNotCarriedOver() {
+		assertThat(migration.upgrade("movies:details:550", CacheEntry.legacy(movie(550L)))).isEmpty();
+	}
+
+	@Test
+	void startupDoesNotScanOnceTheMigrationIsDone() {
+		StringRedisTemplate strings = mock(StringRedisTemplate.class);
+		when(redisShards.strings(MovieCacheKeys.migrationDone())).thenReturn(strings);
+		when(strings.hasKey(MovieCacheKeys.migrationDone())).thenReturn(true);
+
+		migration.checkPrevious();
+
+		verify(redisShards, never()).all();
+		assertThat(migration.readPrevious(List.of(MovieCacheKeys.details(550L)))).isEmpty();
+		verify(redisShards, never()).multiGet(List.of("movies:details:550"));
+	}
+
+	private static Movie movie(long id) {
+		Movie movie = new Movie();
+		movie.setId(id);
+		movie.setTitle("Movie " + id);
+		return movie;
+	}
+}
@@ -0,0 +1,94 @@
+package comp41720.cinequest.movieservice.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FrequencySketchTests {
+
+	@Test
+	void unseenKeyHasNoCount() {
+		assertThat(new FrequencySketch(1024).frequency("movies:v2:search:never")).isZero();
+	}
+
+	@Test
+	void countsEachKeySeparately() {
+		FrequencySketch sketch = new FrequencySketch(1024);
+
+		increment(sketch, "movies:v2:details:550", 5);
+		increment(sketch, "movies:v2:details:13", 2);
+
+		assertThat(sketch.frequency("movies:v2:details:550")).isEqualTo(5);
+		assertThat(sketch.frequency("movies:v2:details:13")).isEqualTo(2);
+	}
+
+	@Test
+	void countsStopAtFifteen() {
+		FrequencySketch sketch = new FrequencySketch(1024);
+
+		increment(sketch, "hot", 100);
+
+		assertThat(sketch.frequency("hot")).isEqualTo(15);
+	}
+
+	@Test
+	void concurrentIncrementsStopAtFifteen() throws Exception {
+		FrequencySketch sketch = new FrequencySketch(1024);
+		// 8,000 increments in all, below the aging point of 10,240
+		List<Thread> threads = IntStream.range(0, 8)
+				.mapToObj(i -> new Thread(() -> increment(sketch, "hot", 1000)))
+				.toList();
+
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertThat(sketch.frequency("hot")).isEqualTo(15);
+	}
+
+	@Test
+	void neverUnderCounts() {
+		FrequencySketch sketch = new FrequencySketch(256);
+		// More keys than counters per row, so collisions are certain; 1,000 increments stay below the aging point
+		IntStream.range(0, 500).forEach(i -> increment(sketch, "key-" + i, 1 + i % 3));
+
+		IntStream.range(0, 500).forEach(i ->
+				assertThat(sketch.frequency("key-" + i)).isGreaterThanOrEqualTo(Math.min(15, 1 + i % 3)));
+	}
+
+	@Test
+	void countsAreHalvedAfterTenTimesTheWidthInIncrements() {
+		// The smallest width is 64 counters per row, so the counters age every 640 increments
+		FrequencySketch sketch = new FrequencySketch(64);
+
+		increment(sketch, "hot", 639);
+		assertThat(sketch.frequency("hot")).isEqualTo(15);
+
+		sketch.increment("hot");
+		assertThat(sketch.frequency("hot")).isEqualTo(7);
+
+		increment(sketch, "hot", 640);
+		assertThat(sketch.frequency("hot")).isEqualTo(7);
+	}
+
+	@Test
+	void agingLetsOldKeysFadeOut() {
+		FrequencySketch sketch = new FrequencySketch(64);
+		increment(sketch, "once-popular", 4);
+
+		// Each reset halves the count: 4, 2, 1, then 0
+		increment(sketch, "now-popular", 3 * 640);
+
+		assertThat(sketch.frequency("once-popular")).isZero();
+	}
+
+	private static void increment(FrequencySketch sketch, String key, int times) {
+		for (int i = 0; i < times; i++) {
+			sketch.increment(key);
+		}
+	}
+}
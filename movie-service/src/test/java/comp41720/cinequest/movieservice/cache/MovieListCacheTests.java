@@ -0,0 +1,106 @@
+package comp41720.cinequest.movieservice.cache;
+
+import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.MovieIdPage;
+import comp41720.cinequest.movieservice.model.TMDBResponse;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.OngoingStubbing;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovieListCacheTests {
+
+	private static final String KEY = MovieCacheKeys.popular(1);
+
+	private final MovieCache movieCache = mock(MovieCache.class);
+	private final MovieListCache movieListCache = new MovieListCache(movieCache, mock(PagePrefetcher.class));
+	private final AtomicInteger tmdbCalls = new AtomicInteger();
+
+	@Test
+	void cachedPageIsHydratedFromItsMoviesInResultOrder() {
+		whenPageLookedUp().thenReturn(new MovieIdPage(1, List.of(13L, 550L), 5, 100));
+		when(movieCache.peekEntries(anyList())).thenReturn(Map.of(
+				MovieCacheKeys.details(550L), entry(movie(550L)),
+				MovieCacheKeys.details(13L), entry(movie(13L))));
+
+		TMDBResponse response = movieListCache.getOrLoad(KEY, 3600, this::fetchFromTmdb);
+
+		assertThat(response.getResults()).extracting(Movie::getId).containsExactly(13L, 550L);
+		assertThat(response.getTotalPages()).isEqualTo(5);
+		assertThat(tmdbCalls).hasValue(0);
+		verify(movieCache, never()).evict(KEY);
+	}
+
+	@Test
+	void pageWithAMissingMovieIsDroppedAndLoadedAgain() {
+		// The page is cached, but movie 550 has since gone: the reload goes to TMDB
+		whenPageLookedUp()
+				.thenReturn(new MovieIdPage(1, List.of(13L, 550L), 5, 100))
+				.thenAnswer(invocation -> invocation.<Supplier<MovieIdPage>>getArgument(3).get());
+		when(movieCache.peekEntries(anyList())).thenReturn(Map.of(MovieCacheKeys.details(13L), entry(movie(13L))));
+
+		TMDBResponse response = movieListCache.getOrLoad(KEY, 3600, this::fetchFromTmdb);
+
+		verify(movieCache).evict(KEY);
+		assertThat(tmdbCalls).hasValue(1);
+		assertThat(response.getResults()).extracting(Movie::getId).containsExactly(13L, 550L);
+	}
+
+	@Test
+	void pageStillMissingMoviesAfterReloadingFailsForTheFallback() {
+		// Another caller stored the page again while its movies are still gone
+		whenPageLookedUp().thenReturn(new MovieIdPage(1, List.of(13L, 550L), 5, 100));
+		when(movieCache.peekEntries(anyList())).thenReturn(Map.of());
+
+		assertThatThrownBy(() -> movieListCache.getOrLoad(KEY, 3600, this::fetchFromTmdb))
+				.isInstanceOf(IllegalStateException.class);
+		verify(movieCache).evict(KEY);
+	}
+
+	@Test
+	void stalePageWithAMissingMovieIsNotServed() {
+		when(movieCache.peekEntry(KEY)).thenReturn(entry(new MovieIdPage(1, List.of(13L, 550L), 5, 100)));
+		when(movieCache.peekEntries(anyList())).thenReturn(Map.of(MovieCacheKeys.details(13L), entry(movie(13L))));
+
+		assertThat(movieListCache.getStale(KEY)).isNull();
+	}
+
+	private OngoingStubbing<MovieIdPage> whenPageLookedUp() {
+		return when(movieCache.getOrLoad(eq(KEY), eq(MovieIdPage.class), anyLong(), any(), any()));
+	}
+
+	private TMDBResponse fetchFromTmdb() {
+		tmdbCalls.incrementAndGet();
+		TMDBResponse response = new TMDBResponse();
+		response.setPage(1);
+		response.setResults(List.of(movie(13L), movie(550L)));
+		response.setTotalPages(5);
+		response.setTotalResults(100);
+		return response;
+	}
+
+	private static CacheEntry entry(Object value) {
+		return new CacheEntry(value, System.currentTimeMillis(), System.currentTimeMillis() + 60_000, null);
+	}
+
+	private static Movie movie(long id) {
+		Movie movie = new Movie();
+		movie.setId(id);
+		movie.setTitle("Movie " + id);
+		return movie;
+	}
+}
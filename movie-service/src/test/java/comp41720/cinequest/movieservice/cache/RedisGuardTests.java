@@ -0,0 +1,40 @@
+package comp41720.cinequest.movieservice.cache;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisGuardTests {
+
+	private final RedisGuard redisGuard =
+			new RedisGuard(CircuitBreakerRegistry.ofDefaults(), new CacheMetrics(new SimpleMeterRegistry()));
+
+	@Test
+	void failedCallReturnsTheFallbackAndIsCounted() {
+		long before = redisGuard.fallbackCount();
+
+		String value = redisGuard.call("get", () -> {
+			throw new IllegalStateException("connection reset");
+		}, "fallback");
+
+		assertThat(value).isEqualTo("fallback");
+		assertThat(redisGuard.fallbackCount()).isEqualTo(before + 1);
+		assertThat(redisGuard.call("get", () -> "answered", "fallback")).isEqualTo("answered");
+		assertThat(redisGuard.fallbackCount()).isEqualTo(before + 1);
+	}
+
+	@Test
+	void failuresOnOtherThreadsAreNotCounted() throws Exception {
+		long before = redisGuard.fallbackCount();
+
+		Thread requestThread = new Thread(() -> redisGuard.run("set", () -> {
+			throw new IllegalStateException("timeout");
+		}));
+		requestThread.start();
+		requestThread.join();
+
+		assertThat(redisGuard.fallbackCount()).isEqualTo(before);
+	}
+}
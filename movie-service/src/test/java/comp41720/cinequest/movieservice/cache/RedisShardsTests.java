@@ -0,0 +1,96 @@
+package comp41720.cinequest.movieservice.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RedisShardsTests {
+
+	private static final int VIRTUAL_NODES = 160;
+	private static final List<String> KEYS = IntStream.range(0, 20_000)
+			.mapToObj(id -> MovieCacheKeys.details((long) id))
+			.toList();
+
+	@Test
+	void routingIsDeterministicAcrossInstances() {
+		Map<String, String> first = route(shards("redis-a:6379", "redis-b:6379", "redis-c:6379"));
+		Map<String, String> second = route(shards("redis-a:6379", "redis-b:6379", "redis-c:6379"));
+
+		assertThat(second).isEqualTo(first);
+	}
+
+	@Test
+	void routingDoesNotDependOnNodeOrder() {
+		assertThat(route(shards("redis-c:6379", "redis-a:6379", "redis-b:6379")))
+				.isEqualTo(route(shards("redis-a:6379", "redis-b:6379", "redis-c:6379")));
+	}
+
+	@Test
+	void keysSpreadRoughlyEvenly() {
+		Map<String, Integer> counts = new HashMap<>();
+		route(shards("redis-a:6379", "redis-b:6379", "redis-c:6379", "redis-d:6379"))
+				.values().forEach(node -> counts.merge(node, 1, Integer::sum));
+
+		assertThat(counts).hasSize(4);
+		counts.values().forEach(count -> assertThat(count).isBetween(KEYS.size() / 4 * 7 / 10, KEYS.size() / 4 * 13 / 10));
+	}
+
+	@Test
+	void addingANodeMovesAboutItsShareOfKeys() {
+		Map<String, String> before = route(shards("redis-a:6379", "redis-b:6379", "redis-c:6379", "redis-d:6379"));
+		Map<String, String> after = route(shards("redis-a:6379", "redis-b:6379", "redis-c:6379", "redis-d:6379",
+				"redis-e:6379"));
+
+		List<String> moved = moved(before, after);
+		// Every moved key goes to the new node, about 1/5 of them
+		assertThat(moved).allMatch(key -> after.get(key).equals("redis-e:6379"));
+		assertThat((double) moved.size() / KEYS.size()).isBetween(0.2 * 0.7, 0.2 * 1.3);
+	}
+
+	@Test
+	void removingANodeOnlyMovesItsKeys() {
+		Map<String, String> before = route(shards("redis-a:6379", "redis-b:6379", "redis-c:6379", "redis-d:6379"));
+		Map<String, String> after = route(shards("redis-a:6379", "redis-b:6379", "redis-c:6379"));
+
+		List<String> moved = moved(before, after);
+		// Exactly the removed node's keys move, about 1/4 of them
+		assertThat(moved).allMatch(key -> before.get(key).equals("redis-d:6379"));
+		assertThat((long) moved.size()).isEqualTo(before.values().stream().filter("redis-d:6379"::equals).count());
+		assertThat((double) moved.size() / KEYS.size()).isBetween(0.25 * 0.7, 0.25 * 1.3);
+	}
+
+	@Test
+	void singleNodeTakesEveryKey() {
+		assertThat(route(shards("localhost:6379")).values()).containsOnly("localhost:6379");
+	}
+
+	@Test
+	void requiresAtLeastOneNode() {
+		assertThatThrownBy(() -> new RedisShards(List.of(), VIRTUAL_NODES))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static RedisShards shards(String... names) {
+		// Routing only needs the node names; no connections are made
+		return new RedisShards(Arrays.stream(names)
+				.map(name -> new RedisShards.Shard(name, null, null, null))
+				.toList(), VIRTUAL_NODES);
+	}
+
+	private static Map<String, String> route(RedisShards shards) {
+		Map<String, String> nodes = new HashMap<>();
+		KEYS.forEach(key -> nodes.put(key, shards.shardFor(key).name()));
+		return nodes;
+	}
+
+	private static List<String> moved(Map<String, String> before, Map<String, String> after) {
+		return KEYS.stream().filter(key -> !before.get(key).equals(after.get(key))).toList();
+	}
+}
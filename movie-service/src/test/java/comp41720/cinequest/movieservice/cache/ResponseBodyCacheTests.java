@@ -0,0 +1,87 @@
+package comp41720.cinequest.movieservice.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseBodyCacheTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	// One 1MB page in all, size classes of 1KB, 2KB and 4KB
+	private final ResponseBodyCache cache =
+			new ResponseBodyCache(objectMapper, new SimpleMeterRegistry(), true, 1, 1024, 4);
+
+	@Test
+	void storedBodyIsServedFromMemoryUntilTheETagChanges() throws Exception {
+		Map<String, String> value = Map.of("title", "Fight Club");
+
+		CachedResponseBody first = (CachedResponseBody) cache.bodyFor("details:550", "v1", value);
+		CachedResponseBody again = (CachedResponseBody) cache.bodyFor("details:550", "v1", value);
+
+		assertThat(body(again)).isEqualTo(objectMapper.writeValueAsString(value));
+		assertThat(body(first)).isEqualTo(body(again));
+
+		Map<String, String> refreshed = Map.of("title", "Fight Club (1999)");
+		CachedResponseBody updated = (CachedResponseBody) cache.bodyFor("details:550", "v2", refreshed);
+		assertThat(body(updated)).isEqualTo(objectMapper.writeValueAsString(refreshed));
+	}
+
+	@Test
+	void readerOfAReplacedBodySeesTheStaleVersion() {
+		CachedResponseBody old = (CachedResponseBody) cache.bodyFor("details:550", "v1", Map.of("title", "old"));
+
+		cache.bodyFor("details:550", "v2", Map.of("title", "new"));
+
+		// The slot was freed and its version bumped: the copy is discarded, the caller re-serializes
+		assertThat(old.copyBytes()).isNull();
+		assertThat(old.getValue()).isEqualTo(Map.of("title", "old"));
+	}
+
+	@Test
+	void fullClassEvictsBodiesNotReadSinceTheLastSweep() {
+		// 1024 slots of 1KB fill the only page
+		CachedResponseBody first = (CachedResponseBody) cache.bodyFor("key:0", "v1", "a");
+		for (int i = 1; i < 1024; i++) {
+			cache.bodyFor("key:" + i, "v1", "a");
+		}
+		CachedResponseBody second = (CachedResponseBody) cache.bodyFor("key:1", "v1", "a");
+
+		cache.bodyFor("key:new", "v1", "a");
+
+		// key:0 was never read again, key:1 was and gets a second chance
+		assertThat(first.copyBytes()).isNull();
+		assertThat(second.copyBytes()).isNotNull();
+		assertThat(cache.bodyFor("key:new", "v1", "a")).isInstanceOf(CachedResponseBody.class);
+	}
+
+	@Test
+	void classWithoutPagesTakesOneBackFromAnotherClass() {
+		CachedResponseBody small = null;
+		for (int i = 0; i < 1024; i++) {
+			small = (CachedResponseBody) cache.bodyFor("key:" + i, "v1", "a");
+		}
+
+		// Larger than 2KB: needs the 4KB class, which has no page while the 1KB class holds the whole budget
+		String large = "x".repeat(3000);
+		Object body = cache.bodyFor("large", "v1", large);
+
+		assertThat(body).isInstanceOf(CachedResponseBody.class);
+		assertThat(body((CachedResponseBody) body)).isEqualTo("\"" + large + "\"");
+		// The page changed class, so the small bodies stored on it are gone
+		assertThat(small.copyBytes()).isNull();
+		assertThat(cache.bodyFor("key:0", "v1", "a")).isInstanceOf(CachedResponseBody.class);
+	}
+
+	private static String body(CachedResponseBody body) {
+		byte[] bytes = body.copyBytes();
+		assertThat(bytes).isNotNull();
+		return new String(Arrays.copyOf(bytes, body.length()), StandardCharsets.UTF_8);
+	}
+}
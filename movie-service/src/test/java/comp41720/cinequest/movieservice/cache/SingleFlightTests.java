@@ -0,0 +1,132 @@
+package comp41720.cinequest.movieservice.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTests {
+
+	private final SingleFlight<String> singleFlight = new SingleFlight<>();
+
+	@Test
+	void concurrentCallersShareOneLoad() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+
+		CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("k", () -> {
+			loads.incrementAndGet();
+			loading.countDown();
+			await(release);
+			return "value";
+		}));
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		FutureTask<String> follower = startFollower(() -> singleFlight.execute("k", () -> {
+			loads.incrementAndGet();
+			return "other";
+		}));
+		release.countDown();
+
+		assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+		assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+		assertThat(loads).hasValue(1);
+		assertThat(singleFlight.inFlightCount()).isZero();
+	}
+
+	@Test
+	void waitingCallersGetTheLeadersOriginalException() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		IllegalStateException failure = new IllegalStateException("TMDB down");
+
+		CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("k", () -> {
+			loading.countDown();
+			await(release);
+			throw failure;
+		}));
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		FutureTask<Throwable> follower = startFollower(() -> {
+			try {
+				singleFlight.execute("k", () -> "unused");
+				return null;
+			} catch (RuntimeException ex) {
+				return ex;
+			}
+		});
+		release.countDown();
+
+		assertThat(follower.get(5, TimeUnit.SECONDS)).isSameAs(failure);
+		assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCause(failure);
+		assertThat(singleFlight.inFlightCount()).isZero();
+	}
+
+	@Test
+	void failedLoadIsNotRemembered() {
+		assertThatThrownBy(() -> singleFlight.execute("k", () -> {
+			throw new IllegalStateException("first");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(singleFlight.inFlightCount()).isZero();
+		assertThat(singleFlight.execute("k", () -> "second")).isEqualTo("second");
+	}
+
+	@Test
+	void errorsAreHandedToWaitingCallersToo() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("k", () -> {
+			loading.countDown();
+			await(release);
+			throw new AssertionError("boom");
+		}));
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		FutureTask<Throwable> follower = startFollower(() -> {
+			try {
+				singleFlight.execute("k", () -> "unused");
+				return null;
+			} catch (Throwable ex) {
+				return ex;
+			}
+		});
+		release.countDown();
+
+		assertThat(follower.get(5, TimeUnit.SECONDS)).isInstanceOf(AssertionError.class).hasMessage("boom");
+		assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(AssertionError.class);
+		assertThat(singleFlight.inFlightCount()).isZero();
+	}
+
+	@Test
+	void differentKeysLoadIndependently() {
+		assertThat(singleFlight.execute("a", () -> singleFlight.execute("b", () -> "b") + "a")).isEqualTo("ba");
+		assertThat(singleFlight.inFlightCount()).isZero();
+	}
+
+	// Runs a second caller on its own thread and returns once it is parked on the leader's result
+	private static <V> FutureTask<V> startFollower(Callable<V> call) throws InterruptedException {
+		FutureTask<V> task = new FutureTask<>(call);
+		Thread thread = new Thread(task, "single-flight-follower");
+		thread.start();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		return task;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package comp41720.cinequest.movieservice.cache.codec;
+
+import comp41720.cinequest.movieservice.cache.CacheEntry;
+import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.MovieIdPage;
+import comp41720.cinequest.movieservice.model.TMDBResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryCacheValueCodecTests {
+
+	private final BinaryCacheValueCodec codec = new BinaryCacheValueCodec(true, 64);
+
+	@Test
+	void roundTripsMovie() {
+		CacheEntry entry = new CacheEntry(movie(550L, "Fight Club"), 1_000L, 2_000L, "abc");
+
+		assertThat(codec.decode(codec.encode(entry))).isEqualTo(entry);
+	}
+
+	@Test
+	void roundTripsMovieWithMissingFields() {
+		Movie movie = new Movie();
+		movie.setId(13L);
+		CacheEntry entry = new CacheEntry(movie, 1_000L, 2_000L, null);
+
+		assertThat(codec.decode(codec.encode(entry))).isEqualTo(entry);
+	}
+
+	@Test
+	void roundTripsCompressedResponse() {
+		TMDBResponse response = new TMDBResponse();
+		response.setPage(1);
+		response.setTotalPages(500);
+		response.setTotalResults(10_000);
+		response.setResults(Arrays.asList(movie(1L, "Same title"), null, movie(2L, "Same title")));
+		CacheEntry entry = new CacheEntry(response, 1_000L, 2_000L, "etag");
+
+		byte[] encoded = codec.encode(entry);
+
+		assertThat(encoded[2] & 1).as("LZ4 flag").isEqualTo(1);
+		assertThat(codec.decode(encoded)).isEqualTo(entry);
+	}
+
+	@Test
+	void roundTripsIdPage() {
+		CacheEntry entry = new CacheEntry(new MovieIdPage(2, List.of(550L, 13L, 1_234_567L), 9, 180),
+				1_000L, 2_000L, "etag");
+
+		assertThat(new BinaryCacheValueCodec(false, 0).decode(codec.encode(entry))).isEqualTo(entry);
+	}
+
+	@Test
+	void rejectsNonBinaryAndNewerVersions() {
+		assertThatThrownBy(() -> codec.decode("{\"value\":1}".getBytes()))
+				.isInstanceOf(SerializationException.class);
+
+		byte[] encoded = codec.encode(new CacheEntry(movie(1L, "x"), 1L, 2L, null));
+		encoded[1] = BinaryCacheValueCodec.VERSION + 1;
+		assertThatThrownBy(() -> codec.decode(encoded)).isInstanceOf(SerializationException.class);
+	}
+
+	@Test
+	void rejectsTruncatedEntries() {
+		byte[] encoded = codec.encode(new CacheEntry(movie(550L, "Fight Club"), 1_000L, 2_000L, "abc"));
+
+		for (int length = 0; length < encoded.length; length++) {
+			byte[] truncated = Arrays.copyOf(encoded, length);
+			assertThatThrownBy(() -> codec.decode(truncated)).isInstanceOf(SerializationException.class);
+		}
+	}
+
+	@Test
+	void rejectsStringLengthPastTheEndOfInput() {
+		// Header, storedAt, freshUntil, then an etag whose length (2^28) is far beyond the remaining bytes
+		byte[] encoded = new byte[3 + 16 + 1 + 5];
+		encoded[0] = BinaryCacheValueCodec.MAGIC;
+		encoded[1] = BinaryCacheValueCodec.VERSION;
+		encoded[19] = 1;
+		encoded[20] = (byte) 0x80;
+		encoded[21] = (byte) 0x80;
+		encoded[22] = (byte) 0x80;
+		encoded[23] = (byte) 0x80;
+		encoded[24] = 0x01;
+
+		assertThatThrownBy(() -> codec.decode(encoded)).isInstanceOf(SerializationException.class);
+	}
+
+	@Test
+	void rejectsNegativeLength() {
+		byte[] encoded = new byte[3 + 16 + 1 + 5];
+		encoded[0] = BinaryCacheValueCodec.MAGIC;
+		encoded[1] = BinaryCacheValueCodec.VERSION;
+		encoded[19] = 1;
+		encoded[20] = (byte) 0xFF;
+		encoded[21] = (byte) 0xFF;
+		encoded[22] = (byte) 0xFF;
+		encoded[23] = (byte) 0xFF;
+		encoded[24] = 0x0F;
+
+		assertThatThrownBy(() -> codec.decode(encoded)).isInstanceOf(SerializationException.class);
+	}
+
+	private static Movie movie(long id, String title) {
+		Movie movie = new Movie();
+		movie.setId(id);
+		movie.setTitle(title);
+		movie.setOverview("An overview long enough to be worth compressing, repeated: " + title + title + title);
+		movie.setReleaseDate("1999-10-15");
+		movie.setVoteAverage(8.4);
+		movie.setVoteCount(26_000);
+		movie.setAdult(false);
+		movie.setOriginalLanguage("en");
+		movie.setPopularity(61.4);
+		return movie;
+	}
+}
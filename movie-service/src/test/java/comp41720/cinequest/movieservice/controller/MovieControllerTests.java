@@ -0,0 +1,100 @@
+package comp41720.cinequest.movieservice.controller;
+
+import comp41720.cinequest.movieservice.cache.CacheValidator;
+import comp41720.cinequest.movieservice.cache.MovieCache;
+import comp41720.cinequest.movieservice.cache.MovieCacheKeys;
+import comp41720.cinequest.movieservice.cache.MovieListCache;
+import comp41720.cinequest.movieservice.cache.ResponseBodyCache;
+import comp41720.cinequest.movieservice.index.MovieCatalogIndex;
+import comp41720.cinequest.movieservice.index.TitleSuggestIndex;
+import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.service.MovieBatchService;
+import comp41720.cinequest.movieservice.service.TMDBService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class MovieControllerTests {
+
+	private final TMDBService tmdbService = mock(TMDBService.class);
+	private final MovieCache movieCache = mock(MovieCache.class);
+	private final ResponseBodyCache responseBodyCache = mock(ResponseBodyCache.class);
+
+	private MockMvc mockMvc;
+	private Movie movie;
+
+	@BeforeEach
+	void setUp() {
+		MovieController controller = new MovieController(tmdbService, mock(MovieBatchService.class),
+				mock(TitleSuggestIndex.class), mock(MovieCatalogIndex.class), movieCache,
+				mock(MovieListCache.class), responseBodyCache);
+		mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+		movie = new Movie();
+		movie.setId(550L);
+		movie.setTitle("Fight Club");
+		when(tmdbService.getMovieDetails(550L)).thenReturn(movie);
+		when(responseBodyCache.bodyFor(anyString(), anyString(), any()))
+				.thenAnswer(invocation -> invocation.getArgument(2));
+	}
+
+	@Test
+	void cachedResponseCarriesETagAndLifetime() throws Exception {
+		when(movieCache.validatorFor(MovieCacheKeys.details(550L), movie))
+				.thenReturn(new CacheValidator("abc", 60, 3600));
+
+		mockMvc.perform(get("/api/movies/550"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age=60")))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("stale-while-revalidate=3600")))
+				.andExpect(jsonPath("$.title").value("Fight Club"));
+	}
+
+	@Test
+	void matchingIfNoneMatchIsAnsweredWith304AndNoBody() throws Exception {
+		when(movieCache.validatorFor(MovieCacheKeys.details(550L), movie))
+				.thenReturn(new CacheValidator("abc", 60, 3600));
+
+		mockMvc.perform(get("/api/movies/550").header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+				.andExpect(content().string(""));
+	}
+
+	@Test
+	void changedValueIsSentInFull() throws Exception {
+		when(movieCache.validatorFor(MovieCacheKeys.details(550L), movie))
+				.thenReturn(new CacheValidator("def", 60, 3600));
+
+		mockMvc.perform(get("/api/movies/550").header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"def\""))
+				.andExpect(jsonPath("$.title").value("Fight Club"));
+	}
+
+	@Test
+	void responseNotFromTheCacheHasNoValidator() throws Exception {
+		when(movieCache.validatorFor(eq(MovieCacheKeys.details(550L)), any())).thenReturn(null);
+
+		mockMvc.perform(get("/api/movies/550").header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.ETAG))
+				.andExpect(header().doesNotExist(HttpHeaders.CACHE_CONTROL))
+				.andExpect(jsonPath("$.title").value("Fight Club"));
+	}
+}
@@ -0,0 +1,98 @@
+package comp41720.cinequest.movieservice.index;
+
+import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.TMDBResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MovieSearchIndexTests {
+
+	private static final int PAGE_SIZE = 20;
+	private static final int MIN_RESULTS = 20;
+
+	private MovieSearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new MovieSearchIndex(1800);
+		ReflectionTestUtils.setField(index, "pageSize", PAGE_SIZE);
+		ReflectionTestUtils.setField(index, "maxMovies", 1000);
+	}
+
+	@Test
+	void firstPageIsAnsweredLocallyOnceEnoughMoviesMatch() {
+		index.ingest(movies("Star", 1, 30));
+
+		TMDBResponse response = index.search("star", 1, MIN_RESULTS);
+
+		assertThat(response).isNotNull();
+		assertThat(response.getPage()).isEqualTo(1);
+		assertThat(response.getResults()).hasSize(PAGE_SIZE);
+		assertThat(response.getTotalResults()).isEqualTo(30);
+		assertThat(response.getTotalPages()).isEqualTo(2);
+		// Equal scores: the most popular movie comes first
+		assertThat(response.getResults().get(0).getId()).isEqualTo(30L);
+	}
+
+	@Test
+	void secondPageContinuesTheFirstPageRanking() {
+		index.ingest(movies("Star", 1, 30));
+		TMDBResponse first = index.search("star", 1, MIN_RESULTS);
+
+		// Movies indexed after page 1 must not reorder or extend the pages that follow it
+		index.ingest(movies("Star", 100, 10));
+		TMDBResponse second = index.search("STAR ", 2, MIN_RESULTS);
+
+		assertThat(second).isNotNull();
+		assertThat(second.getResults()).hasSize(10);
+		assertThat(second.getTotalPages()).isEqualTo(first.getTotalPages());
+		List<Long> ids = new ArrayList<>();
+		first.getResults().forEach(movie -> ids.add(movie.getId()));
+		second.getResults().forEach(movie -> ids.add(movie.getId()));
+		assertThat(ids).doesNotHaveDuplicates().allMatch(id -> id <= 30);
+	}
+
+	@Test
+	void pagesPastTheLocalRankingGoToTmdb() {
+		index.ingest(movies("Star", 1, 30));
+		index.search("star", 1, MIN_RESULTS);
+
+		assertThat(index.search("star", 3, MIN_RESULTS)).isNull();
+	}
+
+	@Test
+	void laterPagesGoToTmdbWhenPageOneWasNotAnsweredLocally() {
+		index.ingest(movies("Star", 1, 45));
+
+		assertThat(index.search("star", 2, MIN_RESULTS)).isNull();
+	}
+
+	@Test
+	void queriesBelowTheThresholdGoToTmdbOnEveryPage() {
+		index.ingest(movies("Star", 1, 30));
+		index.search("star", 1, MIN_RESULTS);
+
+		// Same query, higher threshold: page 1 falls through, and page 2 must follow it to TMDB
+		assertThat(index.search("star", 1, 31)).isNull();
+		assertThat(index.search("star", 2, 31)).isNull();
+		assertThat(index.search("nothing", 1, MIN_RESULTS)).isNull();
+	}
+
+	private static List<Movie> movies(String title, long firstId, int count) {
+		List<Movie> movies = new ArrayList<>();
+		for (long id = firstId; id < firstId + count; id++) {
+			Movie movie = new Movie();
+			movie.setId(id);
+			movie.setTitle(title + " " + id);
+			movie.setPopularity((double) id);
+			movies.add(movie);
+		}
+		return movies;
+	}
+}
@@ -0,0 +1,49 @@
+package comp41720.cinequest.movieservice.index;
+
+import comp41720.cinequest.movieservice.cache.MovieCacheKeys;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextNormalizerTests {
+
+	@Test
+	void canonicalQueryFoldsCaseAccentsAndWhitespace() {
+		assertThat(TextNormalizer.canonicalQuery("  The   Matrix ")).isEqualTo("the matrix");
+		assertThat(TextNormalizer.canonicalQuery("THE MATRIX")).isEqualTo("the matrix");
+		assertThat(TextNormalizer.canonicalQuery("Amélie")).isEqualTo("amelie");
+		assertThat(TextNormalizer.canonicalQuery("Le\tFabuleux\nDestin")).isEqualTo("le fabuleux destin");
+		assertThat(TextNormalizer.canonicalQuery("Amélie Poulain")).isEqualTo("amelie poulain");
+	}
+
+	@Test
+	void canonicalQueryKeepsStopWordsAndPunctuation() {
+		// TMDB can answer these differently, so they must not share a cache key
+		assertThat(TextNormalizer.canonicalQuery("The Thing")).isNotEqualTo(TextNormalizer.canonicalQuery("Thing"));
+		assertThat(TextNormalizer.canonicalQuery("Se7en: Director's Cut")).isEqualTo("se7en: director's cut");
+		assertThat(TextNormalizer.canonicalQuery("It")).isEqualTo("it");
+	}
+
+	@Test
+	void canonicalQueryOfNothingIsEmpty() {
+		assertThat(TextNormalizer.canonicalQuery(null)).isEmpty();
+		assertThat(TextNormalizer.canonicalQuery("   ")).isEmpty();
+	}
+
+	@Test
+	void searchKeysFollowTheCanonicalQuery() {
+		assertThat(MovieCacheKeys.search(" AMÉLIE ", 1)).isEqualTo(MovieCacheKeys.search("amelie", 1));
+		assertThat(MovieCacheKeys.search("amelie", 1)).isNotEqualTo(MovieCacheKeys.search("amelie", 2));
+		assertThat(MovieCacheKeys.search("The Thing", 1)).isNotEqualTo(MovieCacheKeys.search("Thing", 1));
+		// Hashed: fixed length, no user input in the key
+		assertThat(MovieCacheKeys.search("<script>", 1)).doesNotContain("script")
+				.hasSameSizeAs(MovieCacheKeys.search("a much longer query than the other one", 1));
+	}
+
+	@Test
+	void termsDropStopWordsUnlessThatLeavesNothing() {
+		assertThat(TextNormalizer.terms("The Lord of the Rings")).containsExactly("lord", "rings");
+		assertThat(TextNormalizer.terms("It")).containsExactly("it");
+		assertThat(TextNormalizer.tokens("Spider-Man: No Way Home")).containsExactly("spider", "man", "no", "way", "home");
+	}
+}
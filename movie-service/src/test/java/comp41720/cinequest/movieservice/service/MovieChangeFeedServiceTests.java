@@ -0,0 +1,218 @@
+package comp41720.cinequest.movieservice.service;
+
+import comp41720.cinequest.movieservice.cache.CacheEntry;
+import comp41720.cinequest.movieservice.cache.DistributedLease;
+import comp41720.cinequest.movieservice.cache.HotKeyTracker;
+import comp41720.cinequest.movieservice.cache.MovieCache;
+import comp41720.cinequest.movieservice.cache.MovieCacheKeys;
+import comp41720.cinequest.movieservice.cache.RedisGuard;
+import comp41720.cinequest.movieservice.cache.RedisShards;
+import comp41720.cinequest.movieservice.model.Movie;
+import comp41720.cinequest.movieservice.model.MovieChanges;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the change feed poll against a stubbed TMDB feed and an in-memory stand-in for the Redis bookkeeping.
+ */
+class MovieChangeFeedServiceTests {
+
+	private final LocalDate today = LocalDate.now(ZoneOffset.UTC);
+	private final long midnight = today.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+
+	private final TMDBService tmdbService = mock(TMDBService.class);
+	private final MovieCache movieCache = mock(MovieCache.class);
+	private final HotKeyTracker hotKeyTracker = mock(HotKeyTracker.class);
+	private final DistributedLease lease = mock(DistributedLease.class);
+	private final RedisShards redisShards = mock(RedisShards.class);
+	private final RedisGuard redisGuard = mock(RedisGuard.class);
+	private final StringRedisTemplate strings = mock(StringRedisTemplate.class);
+
+	// Stand-ins for the per-day Redis sets and markers
+	private final Set<String> seen = new HashSet<>();
+	private final Set<String> closedDays = new HashSet<>();
+	private final Map<String, CacheEntry> cached = new HashMap<>();
+	private boolean redisUp = true;
+
+	private MovieChangeFeedService service;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		service = new MovieChangeFeedService(tmdbService, movieCache, hotKeyTracker, lease, redisShards, redisGuard,
+				new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(service, "enabled", true);
+		ReflectionTestUtils.setField(service, "intervalMs", 60_000L);
+		ReflectionTestUtils.setField(service, "maxPages", 10);
+		ReflectionTestUtils.setField(service, "topDetails", 100);
+
+		when(lease.tryAcquire(anyString(), any(Duration.class))).thenReturn("token");
+		when(redisShards.strings(anyString())).thenReturn(strings);
+		when(movieCache.peekRemoteEntries(anyList())).thenAnswer(invocation -> {
+			Map<String, CacheEntry> found = new HashMap<>();
+			for (String key : (List<String>) invocation.getArgument(0)) {
+				if (cached.containsKey(key)) {
+					found.put(key, cached.get(key));
+				}
+			}
+			return found;
+		});
+
+		// RedisGuard: run the call while Redis is up, otherwise return the fallback
+		when(redisGuard.call(anyString(), any(Supplier.class), any())).thenAnswer(invocation -> redisUp
+				? ((Supplier<?>) invocation.getArgument(1)).get()
+				: invocation.getArgument(2));
+		doAnswer(invocation -> {
+			if (redisUp) {
+				((Runnable) invocation.getArgument(1)).run();
+			}
+			return null;
+		}).when(redisGuard).run(anyString(), any(Runnable.class));
+
+		when(strings.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+			Object[] args = Arrays.copyOfRange(invocation.getArguments(), 2, invocation.getArguments().length);
+			// ARGV[1] is the TTL, the rest are ids
+			return Arrays.stream(args).skip(1).map(Object::toString).filter(seen::add).toList();
+		});
+		when(strings.hasKey(anyString())).thenAnswer(invocation -> closedDays.contains(invocation.<String>getArgument(0)));
+		ValueOperations<String, String> values = mock(ValueOperations.class);
+		when(strings.opsForValue()).thenReturn(values);
+		doAnswer(invocation -> closedDays.add(invocation.getArgument(0)))
+				.when(values).set(anyString(), eq("1"), any(Duration.class));
+
+		when(tmdbService.getMovieChanges(any(LocalDate.class), anyInt())).thenReturn(changes());
+	}
+
+	@Test
+	void refreshesHotChangedMoviesAndEvictsTheRest() {
+		closedDays.add(MovieCacheKeys.changesClosed(today.minusDays(1)));
+		when(tmdbService.getMovieChanges(today, 1)).thenReturn(changes(1L, 2L, 3L));
+		cache(1L, System.currentTimeMillis());
+		cache(2L, System.currentTimeMillis());
+		when(hotKeyTracker.topDetails(100)).thenReturn(List.of(2L));
+
+		service.poll();
+
+		verify(tmdbService).refreshMovieDetails(2L);
+		verify(movieCache).evict(MovieCacheKeys.details(1L));
+		verify(movieCache, never()).evict(MovieCacheKeys.details(2L));
+		// Not cached: nothing to do
+		verify(movieCache, never()).evict(MovieCacheKeys.details(3L));
+	}
+
+	@Test
+	void actsOnEachChangeOnceADay() {
+		closedDays.add(MovieCacheKeys.changesClosed(today.minusDays(1)));
+		when(tmdbService.getMovieChanges(today, 1)).thenReturn(changes(1L));
+		cache(1L, System.currentTimeMillis());
+
+		service.poll();
+		service.poll();
+
+		verify(movieCache).evict(MovieCacheKeys.details(1L));
+	}
+
+	@Test
+	void closingYesterdayRevisitsEntriesStoredBeforeMidnight() {
+		when(tmdbService.getMovieChanges(today.minusDays(1), 1)).thenReturn(changes(5L, 6L));
+		cache(5L, midnight - 1_000);
+		cache(6L, midnight + 1_000);
+
+		service.poll();
+
+		verify(movieCache).evict(MovieCacheKeys.details(5L));
+		verify(movieCache, never()).evict(MovieCacheKeys.details(6L));
+		assertThat(closedDays).contains(MovieCacheKeys.changesClosed(today.minusDays(1)));
+	}
+
+	@Test
+	void followsEveryPageOfTheFeed() {
+		closedDays.add(MovieCacheKeys.changesClosed(today.minusDays(1)));
+		MovieChanges first = changes(1L);
+		first.setTotalPages(2);
+		when(tmdbService.getMovieChanges(today, 1)).thenReturn(first);
+		when(tmdbService.getMovieChanges(today, 2)).thenReturn(changes(2L));
+		cache(1L, System.currentTimeMillis());
+		cache(2L, System.currentTimeMillis());
+
+		service.poll();
+
+		verify(movieCache).evict(MovieCacheKeys.details(1L));
+		verify(movieCache).evict(MovieCacheKeys.details(2L));
+	}
+
+	@Test
+	void leavesChangesForTheNextPollWhileRedisIsUnavailable() {
+		when(tmdbService.getMovieChanges(today, 1)).thenReturn(changes(1L));
+		when(tmdbService.getMovieChanges(today.minusDays(1), 1)).thenReturn(changes(1L));
+		cache(1L, midnight - 1_000);
+
+		redisUp = false;
+		service.poll();
+
+		verify(movieCache, never()).evict(anyString());
+		assertThat(seen).isEmpty();
+		assertThat(closedDays).isEmpty();
+
+		redisUp = true;
+		service.poll();
+
+		assertThat(seen).contains("1");
+		assertThat(closedDays).contains(MovieCacheKeys.changesClosed(today.minusDays(1)));
+	}
+
+	@Test
+	void onlyTheLeaseHolderPolls() {
+		when(lease.tryAcquire(anyString(), any(Duration.class))).thenReturn(null);
+
+		service.poll();
+
+		verify(tmdbService, never()).getMovieChanges(any(LocalDate.class), anyInt());
+	}
+
+	private void cache(long id, long storedAt) {
+		Movie movie = new Movie();
+		movie.setId(id);
+		cached.put(MovieCacheKeys.details(id), new CacheEntry(movie, storedAt, Long.MAX_VALUE, null));
+	}
+
+	private static MovieChanges changes(Long... ids) {
+		MovieChanges changes = new MovieChanges();
+		changes.setPage(1);
+		changes.setTotalPages(1);
+		changes.setResults(Arrays.stream(ids).map(id -> {
+			MovieChanges.ChangedMovie movie = new MovieChanges.ChangedMovie();
+			movie.setId(id);
+			return movie;
+		}).toList());
+		return changes;
+	}
+}
@@ -0,0 +1,122 @@
+package comp41720.cinequest.movieservice.service.client;
+
+import comp41720.cinequest.movieservice.exception.UpstreamThrottledException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TMDBRequestSchedulerTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void backgroundLeavesTheReserveForInteractiveRequests() {
+		// Practically no refill during the test: only the burst is available
+		TMDBRequestScheduler scheduler = scheduler(0.001, 5, 2, 0, 0);
+
+		for (int i = 0; i < 3; i++) {
+			RequestLane.runInBackground(scheduler::acquire);
+		}
+		assertThatThrownBy(() -> RequestLane.runInBackground(scheduler::acquire))
+				.isInstanceOf(UpstreamThrottledException.class);
+
+		scheduler.acquire();
+		scheduler.acquire();
+		assertThatThrownBy(scheduler::acquire).isInstanceOf(UpstreamThrottledException.class);
+
+		assertThat(shedCount("background")).isEqualTo(1);
+		assertThat(shedCount("interactive")).isEqualTo(1);
+	}
+
+	@Test
+	void pauseOn429ShedsRequestsThatCannotWaitItOut() {
+		TMDBRequestScheduler scheduler = scheduler(1000, 10, 0, 100, 100);
+
+		scheduler.pause(30);
+
+		assertThatThrownBy(scheduler::acquire)
+				.isInstanceOfSatisfying(UpstreamThrottledException.class,
+						ex -> assertThat(ex.getRetryAfterSeconds()).isBetween(28L, 30L));
+		assertThatThrownBy(() -> RequestLane.runInBackground(scheduler::acquire))
+				.isInstanceOf(UpstreamThrottledException.class);
+	}
+
+	@Test
+	void pauseHoldsRequestsUntilRetryAfterHasPassed() {
+		TMDBRequestScheduler scheduler = scheduler(1000, 10, 0, 3000, 0);
+
+		scheduler.pause(1);
+		long start = System.currentTimeMillis();
+		scheduler.acquire();
+
+		assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(900);
+		assertThat(shedCount("interactive")).isZero();
+	}
+
+	@Test
+	void shorterPauseDoesNotCutALongerOneShort() {
+		TMDBRequestScheduler scheduler = scheduler(1000, 10, 0, 2000, 0);
+
+		scheduler.pause(30);
+		scheduler.pause(1);
+
+		assertThatThrownBy(scheduler::acquire).isInstanceOf(UpstreamThrottledException.class);
+	}
+
+	@Test
+	void tooManyWaitingRequestsAreShedStraightAway() {
+		TMDBRequestScheduler scheduler = new TMDBRequestScheduler(meterRegistry, 1000, 10, 0, 5000, 5000, 0);
+
+		long start = System.currentTimeMillis();
+		assertThatThrownBy(scheduler::acquire).isInstanceOf(UpstreamThrottledException.class)
+				.hasMessageContaining("too many requests waiting");
+		assertThat(System.currentTimeMillis() - start).isLessThan(1000);
+	}
+
+	@Test
+	void tryAcquireNeverWaitsAndTheTokenIsSpentByTheNextAcquire() {
+		// Practically no refill: 3 tokens, 2 of them reserved for interactive requests
+		TMDBRequestScheduler scheduler = scheduler(0.001, 3, 2, 0, 5000);
+		AtomicBoolean first = new AtomicBoolean();
+		AtomicBoolean second = new AtomicBoolean();
+
+		long start = System.currentTimeMillis();
+		RequestLane.runInBackground(() -> {
+			first.set(scheduler.tryAcquire());
+			// Spends the token already held, so it neither waits nor sheds
+			scheduler.acquire();
+			second.set(scheduler.tryAcquire());
+		});
+
+		assertThat(first).isTrue();
+		assertThat(second).isFalse();
+		assertThat(System.currentTimeMillis() - start).isLessThan(1000);
+		assertThat(shedCount("background")).isZero();
+	}
+
+	@Test
+	void unusedTokenIsGivenBack() {
+		TMDBRequestScheduler scheduler = scheduler(0.001, 1, 0, 0, 0);
+
+		assertThat(scheduler.tryAcquire()).isTrue();
+		scheduler.releaseUnused();
+
+		// Only one token in all: this succeeds only if it came back
+		scheduler.acquire();
+		assertThat(scheduler.tryAcquire()).isFalse();
+	}
+
+	private TMDBRequestScheduler scheduler(double requestsPerSecond, int burst, int backgroundReserve,
+										   long interactiveMaxWaitMs, long backgroundMaxWaitMs) {
+		return new TMDBRequestScheduler(meterRegistry, requestsPerSecond, burst, backgroundReserve,
+				interactiveMaxWaitMs, backgroundMaxWaitMs, 10);
+	}
+
+	private double shedCount(String lane) {
+		return meterRegistry.get("tmdb.scheduler.shed").tag("lane", lane).counter().count();
+	}
+}
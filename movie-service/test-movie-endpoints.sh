@@ -36,8 +36,18 @@ echo "6. Searching for movies with query 'Inception' (page 1)"
 curl -X GET "http://localhost:3002/api/movies/search?q=Inception&page=1"
 echo -e "\n"
 
-# 7. Health check
-echo "7. Health check"
+# 7. Batch movie details (one request for several ids, returned in request order)
+echo "7. Getting movie details for IDs 550, 680 and 13 in one batch"
+curl -X GET "http://localhost:3002/api/movies/batch?ids=550,680,13"
+echo -e "\n"
+
+# 8. Title suggestions (from titles already served above, no TMDB call)
+echo "8. Getting title suggestions for prefix 'incep'"
+curl -X GET "http://localhost:3002/api/movies/suggest?prefix=incep&limit=5"
+echo -e "\n"
+
+# 9. Health check
+echo "9. Health check"
 curl -X GET "http://localhost:3002/api/movies/health"
 echo -e "\n"
 